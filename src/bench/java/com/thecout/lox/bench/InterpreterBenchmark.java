@@ -0,0 +1,62 @@
+package com.thecout.lox.bench;
+
+import com.thecout.lox.Bytecode.VM;
+import com.thecout.lox.Engine;
+import com.thecout.lox.Jit.TieredCompilation;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Traversal.Interpreter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the classic workloads on every execution engine, so one run shows
+ * both regressions in an engine and the relative speed of the engines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterpreterBenchmark {
+    @Param({"fib", "loop", "branches", "closures", "concat"})
+    public String workload;
+
+    @Param({"tree", "fastpath", "nodes", "tiered", "memo", "vm"})
+    public String engine;
+
+    private List<Stmt> statements;
+    private Engine runner;
+
+    @Setup
+    public void setUp() {
+        statements = new Parser(new Scanner(Workloads.byName(workload)).scan()).parse();
+        runner = createEngine(engine);
+    }
+
+    static Engine createEngine(String name) {
+        if (name.equals("vm")) {
+            return new VM();
+        }
+        Interpreter interpreter = new Interpreter();
+        switch (name) {
+            case "tree" -> {
+            }
+            case "fastpath" -> interpreter.setNumericFastPath(true);
+            case "nodes" -> interpreter.setSelfSpecializing(true);
+            case "tiered" -> interpreter.setTiering(new TieredCompilation());
+            case "memo" -> interpreter.setMemoization(1024);
+            default -> throw new IllegalArgumentException("Unknown engine " + name);
+        }
+        return interpreter;
+    }
+
+    @Benchmark
+    public void interpret() {
+        runner.interpret(statements);
+    }
+}
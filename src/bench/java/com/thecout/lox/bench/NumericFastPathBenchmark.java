@@ -0,0 +1,69 @@
+package com.thecout.lox.bench;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Traversal.Interpreter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting loops with and without the numeric fast path. Each operation is
+ * one loop iteration, so running with -prof gc reports the bytes boxed per
+ * iteration as gc.alloc.rate.norm:
+ * <pre>
+ * java -jar target/benchmarks.jar NumericFastPathBenchmark -prof gc
+ * </pre>
+ * The fast path should box less in the block loop and nothing at all in
+ * the tight loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(NumericFastPathBenchmark.ITERATIONS)
+public class NumericFastPathBenchmark {
+    static final int ITERATIONS = 200_000;
+    static final String BLOCK_LOOP = """
+            fun count(a, d) {
+                while (a < d) {
+                    a = a + 1;
+                }
+                return a;
+            }
+            var result = count(0, %d);
+            """.formatted(ITERATIONS);
+    static final String TIGHT_LOOP = """
+            fun count(a, d) {
+                var step = -(1 - 2);
+                while (a < d) a = a + step * 2 / 2;
+                return a;
+            }
+            var result = count(0, %d);
+            """.formatted(ITERATIONS);
+
+    @Param({"block", "tight"})
+    public String loop;
+
+    @Param({"false", "true"})
+    public boolean fastPath;
+
+    private List<Stmt> statements;
+    private Interpreter interpreter;
+
+    @Setup
+    public void setUp() {
+        statements = new Parser(new Scanner(loop.equals("block") ? BLOCK_LOOP : TIGHT_LOOP).scan()).parse();
+        interpreter = new Interpreter();
+        interpreter.setNumericFastPath(fastPath);
+    }
+
+    @Benchmark
+    public void interpret() {
+        interpreter.interpret(statements);
+    }
+}
@@ -0,0 +1,103 @@
+package com.thecout.lox.bench;
+
+import com.thecout.lox.AstSnapshot;
+import com.thecout.lox.Parser.IncrementalParser;
+import com.thecout.lox.Parser.ParallelParser;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.ProgramCache;
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenBuffer;
+import com.thecout.lox.Traversal.Interpreter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"4194304"})
+    public int sourceBytes;
+
+    private String source;
+    private List<Token> tokens;
+    private TokenBuffer buffer;
+    private IncrementalParser incremental;
+    private int editOffset;
+    private ProgramCache programs;
+    private ByteBuffer snapshot;
+
+    @Setup
+    public void setUp() {
+        source = Workloads.generated(sourceBytes);
+        tokens = new Scanner(source).scan();
+        buffer = TokenBuffer.of(source);
+        incremental = new IncrementalParser(source);
+        editOffset = source.indexOf("total + b", source.length() / 2) + "total + ".length();
+        programs = new ProgramCache(1);
+        programs.get(source);
+        snapshot = ByteBuffer.wrap(AstSnapshot.write(new Parser(buffer).parse()));
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+        return new Parser(tokens).parse();
+    }
+
+    @Benchmark
+    public List<Stmt> parseBuffer() {
+        return new Parser(buffer).parse();
+    }
+
+    @Benchmark
+    public List<Stmt> parseParallel() {
+        return new ParallelParser().parse(buffer);
+    }
+
+    // Scanning plus parsing shows the heap cost of each token representation.
+    @Benchmark
+    public List<Stmt> scanAndParse() {
+        return new Parser(new Scanner(source).scan()).parse();
+    }
+
+    @Benchmark
+    public List<Stmt> scanAndParseBuffer() {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+
+    // Decodes every declaration, which the lazy reader would otherwise put off.
+    @Benchmark
+    public List<Stmt> loadSnapshot() {
+        List<Stmt> statements = AstSnapshot.read(snapshot);
+        for (int i = 0; i < statements.size(); i++) {
+            statements.get(i);
+        }
+        return statements;
+    }
+
+    // Everything a run does before executing, from source text and from a
+    // cache hit, which only hashes the source.
+    @Benchmark
+    public List<Stmt> scanParseAndPrepare() {
+        return Interpreter.prepare(new Parser(TokenBuffer.of(source)).parse());
+    }
+
+    @Benchmark
+    public List<Stmt> cachedProgram() {
+        return programs.get(source);
+    }
+
+    // One keystroke in the middle of the file and its undo.
+    @Benchmark
+    public List<Stmt> incrementalEdit() {
+        incremental.edit(editOffset, 0, "b * ");
+        return incremental.edit(editOffset, 4, "");
+    }
+}
@@ -0,0 +1,55 @@
+package com.thecout.lox.bench;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Traversal.Interpreter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A script that prints in a loop, with System.out replaced by a stream to
+ * /dev/null that flushes on every line like the console stream does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrintBenchmark {
+    static final String PRINTS = """
+            for (var i = 0; i < 10000; i = i + 1) {
+                print i;
+                print "line";
+            }
+            """;
+
+    private List<Stmt> statements;
+    private Interpreter interpreter;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() throws FileNotFoundException {
+        statements = new Parser(new Scanner(PRINTS).scan()).parse();
+        interpreter = new Interpreter();
+        originalOut = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream("/dev/null")), true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void interpret() {
+        interpreter.interpret(statements);
+    }
+}
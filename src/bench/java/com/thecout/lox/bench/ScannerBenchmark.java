@@ -0,0 +1,35 @@
+package com.thecout.lox.bench;
+
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+    @Param({"4194304"})
+    public int sourceBytes;
+
+    @Param({"SWITCH", "TABLES"})
+    public TokenStream.Backend backend;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Workloads.generated(sourceBytes);
+    }
+
+    @Benchmark
+    public List<Token> scan() {
+        return new Scanner(source, backend).scan();
+    }
+}
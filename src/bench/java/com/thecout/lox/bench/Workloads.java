@@ -0,0 +1,109 @@
+package com.thecout.lox.bench;
+
+/**
+ * Lox programs shared by the benchmarks. Results are stored in globals
+ * instead of printed so the measurements do not include console output.
+ */
+final class Workloads {
+    static final String FIB = """
+            fun fib(n) {
+                if (n < 2) return n;
+                return fib(n - 1) + fib(n - 2);
+            }
+            var result = fib(20);
+            """;
+    static final String LOOP = """
+            fun loop(n) {
+                var sum = 0;
+                for (var i = 0; i < n; i = i + 1) {
+                    sum = sum + i;
+                }
+                return sum;
+            }
+            var result = loop(100000);
+            """;
+    static final String BRANCHES = """
+            fun branches(n) {
+                var total = 0;
+                var i = 0;
+                while (i < n) {
+                    if (i < n / 2) {
+                        total = total + 1;
+                    } else {
+                        total = total - 1;
+                    }
+                    i = i + 1;
+                }
+                return total;
+            }
+            var result = branches(100000);
+            """;
+    static final String CLOSURES = """
+            fun makeAdder(n) {
+                fun add(x) {
+                    return x + n;
+                }
+                return add;
+            }
+            fun closures(count) {
+                var total = 0;
+                var i = 0;
+                while (i < count) {
+                    var add = makeAdder(i);
+                    total = add(total);
+                    i = i + 1;
+                }
+                return total;
+            }
+            var result = closures(10000);
+            """;
+    static final String CONCAT = """
+            fun concat(count) {
+                var s = "";
+                var i = 0;
+                while (i < count) {
+                    s = s + "x";
+                    i = i + 1;
+                }
+                return s;
+            }
+            var result = concat(2000);
+            """;
+
+    static String byName(String name) {
+        return switch (name) {
+            case "fib" -> FIB;
+            case "loop" -> LOOP;
+            case "branches" -> BRANCHES;
+            case "closures" -> CLOSURES;
+            case "concat" -> CONCAT;
+            default -> throw new IllegalArgumentException("Unknown workload " + name);
+        };
+    }
+
+    /**
+     * Builds a program of roughly the given size out of distinct functions,
+     * like the large generated scripts the scanner and parser have to handle.
+     */
+    static String generated(int bytes) {
+        StringBuilder source = new StringBuilder(bytes + 256);
+        for (int i = 0; source.length() < bytes; i++) {
+            source.append("fun generated").append(i).append("(a, b) {\n")
+                    .append("    var total = a * ").append(i).append(".5 + b;\n")
+                    .append("    for (var k = 0; k < 10; k = k + 1) {\n")
+                    .append("        if (total > 100) {\n")
+                    .append("            total = total - (b / 2);\n")
+                    .append("        } else {\n")
+                    .append("            total = total + clock();\n")
+                    .append("        }\n")
+                    .append("    }\n")
+                    .append("    print \"done with generated").append(i).append("\";\n")
+                    .append("    return total;\n")
+                    .append("}\n");
+        }
+        return source.toString();
+    }
+
+    private Workloads() {
+    }
+}
@@ -0,0 +1,586 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact binary form of a parsed program, so a precompiled script can be
+ * run without scanning or parsing it. Layout, all integers unsigned varints
+ * unless noted:
+ * <pre>
+ *   magic "LOXS" (4 bytes), version (2 bytes)
+ *   token type count, then each type's name as UTF-8 length and bytes
+ *   pool size, then one int32 offset per pool entry
+ *   declaration count, then one int32 offset per top-level declaration
+ *   pool entries: tag byte, then UTF-8 length and bytes or an 8-byte double
+ *   nodes: tag byte, then tokens as type table index, pool index and line
+ * </pre>
+ * Token types are stored by name, so reordering TokenType does not change
+ * what existing snapshots mean. Identifiers and literal values are stored
+ * once in the pool. Reading maps the file, checks the header and the
+ * offset tables against its size, and decodes a top-level declaration and
+ * the pool entries it uses only when the declaration is first accessed.
+ * A malformed snapshot fails with an IllegalArgumentException.
+ */
+public class AstSnapshot {
+    private static final int MAGIC = 0x4c4f5853;
+    private static final int VERSION = 2;
+
+    private static final byte NULL = 0;
+    private static final byte BLOCK = 1;
+    private static final byte EXPRESSION = 2;
+    private static final byte FUNCTION = 3;
+    private static final byte IF = 4;
+    private static final byte PRINT = 5;
+    private static final byte RETURN = 6;
+    private static final byte VAR = 7;
+    private static final byte WHILE = 8;
+    private static final byte ASSIGN = 9;
+    private static final byte BINARY = 10;
+    private static final byte CALL = 11;
+    private static final byte GROUPING = 12;
+    private static final byte LITERAL = 13;
+    private static final byte TRUE = 14;
+    private static final byte FALSE = 15;
+    private static final byte NIL = 16;
+    private static final byte LOGICAL = 17;
+    private static final byte UNARY = 18;
+    private static final byte VARIABLE = 19;
+
+    private static final byte POOL_STRING = 0;
+    private static final byte POOL_NUMBER = 1;
+
+    public static void write(List<Stmt> statements, Path file) throws IOException {
+        Files.write(file, write(statements));
+    }
+
+    public static byte[] write(List<Stmt> statements) {
+        return new Writer().write(statements);
+    }
+
+    /**
+     * Maps the file and returns its top-level declarations, each decoded on
+     * first access. The returned list is not safe for concurrent use.
+     */
+    public static List<Stmt> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static List<Stmt> read(ByteBuffer buffer) {
+        return new Reader(buffer);
+    }
+
+    private static class Writer implements StmtVisitor<Void>, ExprVisitor<Void> {
+        private final Map<Object, Integer> pool = new LinkedHashMap<>();
+        private final Map<TokenType, Integer> types = new EnumMap<>(TokenType.class);
+        private final List<TokenType> typeOrder = new ArrayList<>();
+        private final Output nodes = new Output();
+
+        byte[] write(List<Stmt> statements) {
+            int[] offsets = new int[statements.size()];
+            for (int i = 0; i < statements.size(); i++) {
+                offsets[i] = nodes.size();
+                write(statements.get(i));
+            }
+            Output entries = new Output();
+            int[] poolOffsets = new int[pool.size()];
+            int index = 0;
+            for (Object value : pool.keySet()) {
+                poolOffsets[index++] = entries.size();
+                if (value instanceof Double) {
+                    entries.write(POOL_NUMBER);
+                    entries.writeLong(Double.doubleToRawLongBits((Double) value));
+                } else {
+                    byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    entries.write(POOL_STRING);
+                    entries.writeVarint(bytes.length);
+                    entries.write(bytes, 0, bytes.length);
+                }
+            }
+
+            Output header = new Output();
+            header.writeInt(MAGIC);
+            header.write(VERSION >> 8);
+            header.write(VERSION);
+            header.writeVarint(typeOrder.size());
+            for (TokenType type : typeOrder) {
+                byte[] name = type.name().getBytes(StandardCharsets.UTF_8);
+                header.writeVarint(name.length);
+                header.write(name, 0, name.length);
+            }
+            header.writeVarint(poolOffsets.length);
+            int tables = header.size() + 4 * poolOffsets.length + varintSize(offsets.length) + 4 * offsets.length;
+            for (int offset : poolOffsets) {
+                header.writeInt(tables + offset);
+            }
+            header.writeVarint(offsets.length);
+            for (int offset : offsets) {
+                header.writeInt(tables + entries.size() + offset);
+            }
+            entries.writeTo(header);
+            nodes.writeTo(header);
+            return header.toByteArray();
+        }
+
+        private int constant(Object value) {
+            return pool.computeIfAbsent(value, k -> pool.size());
+        }
+
+        private void write(Stmt stmt) {
+            if (stmt == null) {
+                nodes.write(NULL);
+            } else {
+                stmt.accept(this);
+            }
+        }
+
+        private void write(Expr expr) {
+            if (expr == null) {
+                nodes.write(NULL);
+            } else {
+                expr.accept(this);
+            }
+        }
+
+        private void write(Token token) {
+            Integer type = types.get(token.type);
+            if (type == null) {
+                type = typeOrder.size();
+                types.put(token.type, type);
+                typeOrder.add(token.type);
+            }
+            nodes.writeVarint(type);
+            // Only identifiers need their lexeme, every other token in the
+            // tree is a keyword or operator with a fixed one.
+            if (token.type == TokenType.IDENTIFIER) {
+                nodes.writeVarint(constant(token.lexeme));
+            }
+            nodes.writeVarint(token.line);
+        }
+
+        private void writeStatements(List<Stmt> statements) {
+            nodes.writeVarint(statements.size());
+            for (Stmt statement : statements) {
+                write(statement);
+            }
+        }
+
+        @Override
+        public Void visitAssignExpr(Assign expr) {
+            nodes.write(ASSIGN);
+            write(expr.name);
+            write(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Binary expr) {
+            nodes.write(BINARY);
+            write(expr.left);
+            write(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitCallExpr(Call expr) {
+            nodes.write(CALL);
+            write(expr.callee);
+            nodes.writeVarint(expr.arguments.size());
+            for (Expr argument : expr.arguments) {
+                write(argument);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Grouping expr) {
+            nodes.write(GROUPING);
+            write(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Literal expr) {
+            if (expr.value == null) {
+                nodes.write(NIL);
+            } else if (expr.value instanceof Boolean) {
+                nodes.write((Boolean) expr.value ? TRUE : FALSE);
+            } else {
+                nodes.write(LITERAL);
+                nodes.writeVarint(constant(expr.value));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitLogicalExpr(Logical expr) {
+            nodes.write(LOGICAL);
+            write(expr.left);
+            write(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Unary expr) {
+            nodes.write(UNARY);
+            write(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Variable expr) {
+            nodes.write(VARIABLE);
+            write(expr.name);
+            return null;
+        }
+
+        @Override
+        public Void visitBlockStmt(Block stmt) {
+            nodes.write(BLOCK);
+            writeStatements(stmt.statements);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(Expression stmt) {
+            nodes.write(EXPRESSION);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionStmt(Function stmt) {
+            nodes.write(FUNCTION);
+            write(stmt.name);
+            nodes.writeVarint(stmt.parameters.size());
+            for (Token parameter : stmt.parameters) {
+                write(parameter);
+            }
+            writeStatements(stmt.body);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(If stmt) {
+            nodes.write(IF);
+            write(stmt.condition);
+            write(stmt.thenBranch);
+            write(stmt.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStmt(Print stmt) {
+            nodes.write(PRINT);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitReturnStmt(Return stmt) {
+            nodes.write(RETURN);
+            write(stmt.value);
+            return null;
+        }
+
+        @Override
+        public Void visitVarStmt(Var stmt) {
+            nodes.write(VAR);
+            write(stmt.name);
+            write(stmt.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(While stmt) {
+            nodes.write(WHILE);
+            write(stmt.keyword);
+            write(stmt.condition);
+            write(stmt.body);
+            return null;
+        }
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+        void writeVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeTo(Output out) {
+            out.write(buf, 0, count);
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static class Reader extends AbstractList<Stmt> implements RandomAccess {
+        private final ByteBuffer buffer;
+        private final TokenType[] types;
+        private final int poolTable;
+        private final Object[] pool;
+        private final int declarationTable;
+        private final Stmt[] statements;
+        private final boolean[] decoded;
+        // Read position of the declaration being decoded.
+        private int position;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            if (buffer.limit() < 6 || buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a Lox snapshot.");
+            }
+            int version = (buffer.get(4) & 0xff) << 8 | buffer.get(5) & 0xff;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version + ".");
+            }
+            position = 6;
+            try {
+                types = new TokenType[checkedCount(1)];
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = TokenType.valueOf(readString());
+                }
+                pool = new Object[checkedCount(4)];
+                poolTable = position;
+                position += 4 * pool.length;
+                int count = checkedCount(4);
+                declarationTable = position;
+                int data = declarationTable + 4 * count;
+                // Every entry and declaration must start inside the data.
+                for (int i = 0; i < pool.length; i++) {
+                    checkOffset(poolTable + 4 * i, data);
+                }
+                for (int i = 0; i < count; i++) {
+                    checkOffset(declarationTable + 4 * i, data);
+                }
+                statements = new Stmt[count];
+                decoded = new boolean[count];
+            } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw new IllegalArgumentException("Truncated snapshot.", e);
+            }
+        }
+
+        // Reads a count of entries of at least the given size and checks
+        // they fit in what is left of the buffer, before anything is
+        // allocated for them.
+        private int checkedCount(int entrySize) {
+            int count = readVarint();
+            if (count < 0 || (long) count * entrySize > buffer.limit() - position) {
+                throw new IllegalArgumentException("Truncated snapshot.");
+            }
+            return count;
+        }
+
+        private void checkOffset(int entry, int data) {
+            int offset = buffer.getInt(entry);
+            if (offset < data || offset >= buffer.limit()) {
+                throw new IllegalArgumentException("Snapshot offset " + offset + " out of bounds.");
+            }
+        }
+
+        @Override
+        public Stmt get(int index) {
+            if (!decoded[index]) {
+                try {
+                    position = buffer.getInt(declarationTable + 4 * index);
+                    statements[index] = readStmt();
+                } catch (IndexOutOfBoundsException | BufferUnderflowException | ClassCastException
+                         | NegativeArraySizeException e) {
+                    throw new IllegalArgumentException("Corrupt snapshot declaration " + index + ".", e);
+                }
+                decoded[index] = true;
+            }
+            return statements[index];
+        }
+
+        @Override
+        public int size() {
+            return statements.length;
+        }
+
+        private Object constant(int index) {
+            Object value = pool[index];
+            if (value == null) {
+                int offset = buffer.getInt(poolTable + 4 * index);
+                if (buffer.get(offset) == POOL_NUMBER) {
+                    value = Double.longBitsToDouble(buffer.getLong(offset + 1));
+                } else {
+                    int saved = position;
+                    position = offset + 1;
+                    value = readString();
+                    position = saved;
+                }
+                pool[index] = value;
+            }
+            return value;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(position++);
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) return value;
+            }
+        }
+
+        private String readString() {
+            byte[] bytes = new byte[checkedCount(1)];
+            buffer.get(position, bytes);
+            position += bytes.length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private Token readToken() {
+            TokenType type = types[readVarint()];
+            if (type == TokenType.IDENTIFIER) {
+                String name = (String) constant(readVarint());
+                return new Token(Symbol.intern(name), readVarint());
+            }
+            return new Token(type, type.lexeme, type.lexeme, readVarint());
+        }
+
+        private List<Stmt> readStatements() {
+            int count = checkedCount(1);
+            List<Stmt> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                statements.add(readStmt());
+            }
+            return statements;
+        }
+
+        private Stmt readStmt() {
+            byte tag = buffer.get(position++);
+            switch (tag) {
+                case NULL:
+                    return null;
+                case BLOCK:
+                    return new Block(readStatements());
+                case EXPRESSION:
+                    return new Expression(readExpr());
+                case FUNCTION: {
+                    Token name = readToken();
+                    int count = checkedCount(1);
+                    List<Token> parameters = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        parameters.add(readToken());
+                    }
+                    return new Function(name, parameters, readStatements());
+                }
+                case IF: {
+                    Expr condition = readExpr();
+                    Stmt thenBranch = readStmt();
+                    return new If(condition, thenBranch, readStmt());
+                }
+                case PRINT:
+                    return new Print(readExpr());
+                case RETURN:
+                    return new Return(readExpr());
+                case VAR: {
+                    Token name = readToken();
+                    return new Var(name, readExpr());
+                }
+                case WHILE: {
+                    Token keyword = readToken();
+                    Expr condition = readExpr();
+                    return new While(keyword, condition, readStmt());
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown statement tag " + tag + ".");
+            }
+        }
+
+        private Expr readExpr() {
+            byte tag = buffer.get(position++);
+            switch (tag) {
+                case NULL:
+                    return null;
+                case ASSIGN: {
+                    Token name = readToken();
+                    return new Assign(name, readExpr());
+                }
+                case BINARY: {
+                    Expr left = readExpr();
+                    Token operator = readToken();
+                    return new Binary(left, operator, readExpr());
+                }
+                case CALL: {
+                    Expr callee = readExpr();
+                    int count = checkedCount(1);
+                    List<Expr> arguments = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        arguments.add(readExpr());
+                    }
+                    return new Call(callee, arguments);
+                }
+                case GROUPING:
+                    return new Grouping(readExpr());
+                case LITERAL:
+                    return new Literal(constant(readVarint()));
+                case TRUE:
+                    return new Literal(true);
+                case FALSE:
+                    return new Literal(false);
+                case NIL:
+                    return new Literal(null);
+                case LOGICAL: {
+                    Expr left = readExpr();
+                    Token operator = readToken();
+                    return new Logical(left, operator, readExpr());
+                }
+                case UNARY: {
+                    Token operator = readToken();
+                    return new Unary(operator, readExpr());
+                }
+                case VARIABLE:
+                    return new Variable(readToken());
+                default:
+                    throw new IllegalArgumentException("Unknown expression tag " + tag + ".");
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.thecout.lox.Bytecode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Chunk {
+    byte[] code = new byte[64];
+    int[] lines = new int[64];
+    int count = 0;
+    Object[] constants;
+    private final List<Object> constantPool = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+    void write(int b, int line) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            lines = Arrays.copyOf(lines, count * 2);
+        }
+        code[count] = (byte) b;
+        lines[count] = line;
+        count++;
+    }
+
+    int addConstant(Object value) {
+        Integer index = constantIndex.get(value);
+        if (index != null) return index;
+        constantPool.add(value);
+        constantIndex.put(value, constantPool.size() - 1);
+        return constantPool.size() - 1;
+    }
+
+    // Trims the code array and freezes the constant pool once compilation is done.
+    void seal() {
+        code = Arrays.copyOf(code, count);
+        lines = Arrays.copyOf(lines, count);
+        constants = constantPool.toArray();
+    }
+
+    public int size() {
+        return count;
+    }
+}
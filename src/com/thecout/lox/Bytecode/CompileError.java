@@ -0,0 +1,14 @@
+package com.thecout.lox.Bytecode;
+
+public class CompileError extends RuntimeException {
+    final int line;
+
+    public CompileError(int line, String message) {
+        super(message);
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,433 @@
+package com.thecout.lox.Bytecode;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Symbol;
+import com.thecout.lox.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lowers the statement and expression trees produced by the Parser into a
+ * flat bytecode chunk per function. Locals live in stack slots, captured
+ * variables are reached through upvalues and everything declared at the top
+ * level is a global addressed by name.
+ */
+public class Compiler implements ExprVisitor<Void>, StmtVisitor<Void> {
+    private static class Local {
+        final Symbol name;
+        final int depth;
+        boolean captured;
+
+        Local(Symbol name, int depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+
+    private static class UpvalueRef {
+        final int index;
+        final boolean isLocal;
+
+        UpvalueRef(int index, boolean isLocal) {
+            this.index = index;
+            this.isLocal = isLocal;
+        }
+    }
+
+    private static class FunctionState {
+        final FunctionState enclosing;
+        final FunctionProto function;
+        final List<Local> locals = new ArrayList<>();
+        final List<UpvalueRef> upvalues = new ArrayList<>();
+        int scopeDepth;
+
+        FunctionState(FunctionState enclosing, FunctionProto function) {
+            this.enclosing = enclosing;
+            this.function = function;
+            // Slot zero holds the callee itself.
+            locals.add(new Local(null, 0));
+        }
+    }
+
+    private FunctionState current;
+    private int line;
+
+    public FunctionProto compile(List<Stmt> statements) {
+        current = new FunctionState(null, new FunctionProto(null, 0));
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+        emit(OpCode.NIL);
+        emit(OpCode.RETURN);
+        current.function.chunk.seal();
+        return current.function;
+    }
+
+    private void compile(Stmt stmt) {
+        if (stmt != null) {
+            stmt.accept(this);
+        }
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    private Chunk chunk() {
+        return current.function.chunk;
+    }
+
+    private void emit(int b) {
+        chunk().write(b, line);
+    }
+
+    private void emitShort(int value) {
+        emit((value >> 8) & 0xff);
+        emit(value & 0xff);
+    }
+
+    private void emitConstant(byte op, Object value) {
+        int index = chunk().addConstant(value);
+        if (index > 0xffff) {
+            throw new CompileError(line, "Too many constants in one function.");
+        }
+        emit(op);
+        emitShort(index);
+    }
+
+    private int emitJump(byte op) {
+        emit(op);
+        emitShort(0xffff);
+        return chunk().count - 2;
+    }
+
+    private void patchJump(int offset) {
+        int jump = chunk().count - offset - 2;
+        if (jump > 0xffff) {
+            throw new CompileError(line, "Too much code to jump over.");
+        }
+        chunk().code[offset] = (byte) ((jump >> 8) & 0xff);
+        chunk().code[offset + 1] = (byte) (jump & 0xff);
+    }
+
+    private void emitLoop(int loopStart) {
+        emit(OpCode.LOOP);
+        int offset = chunk().count - loopStart + 2;
+        if (offset > 0xffff) {
+            throw new CompileError(line, "Loop body too large.");
+        }
+        emitShort(offset);
+    }
+
+    private void track(Token token) {
+        line = token.line;
+    }
+
+    private void beginScope() {
+        current.scopeDepth++;
+    }
+
+    private void endScope() {
+        current.scopeDepth--;
+        List<Local> locals = current.locals;
+        while (!locals.isEmpty() && locals.get(locals.size() - 1).depth > current.scopeDepth) {
+            emit(locals.get(locals.size() - 1).captured ? OpCode.CLOSE_UPVALUE : OpCode.POP);
+            locals.remove(locals.size() - 1);
+        }
+    }
+
+    private int addLocal(Token name) {
+        if (current.locals.size() == 256) {
+            throw new CompileError(name.line, "Too many local variables in function.");
+        }
+        current.locals.add(new Local(name.symbol, current.scopeDepth));
+        return current.locals.size() - 1;
+    }
+
+    private static int resolveLocal(FunctionState state, Symbol name) {
+        for (int i = state.locals.size() - 1; i >= 0; i--) {
+            if (state.locals.get(i).name == name) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int resolveUpvalue(FunctionState state, Token name) {
+        if (state.enclosing == null) return -1;
+
+        int local = resolveLocal(state.enclosing, name.symbol);
+        if (local != -1) {
+            state.enclosing.locals.get(local).captured = true;
+            return addUpvalue(state, local, true, name.line);
+        }
+        int upvalue = resolveUpvalue(state.enclosing, name);
+        if (upvalue != -1) {
+            return addUpvalue(state, upvalue, false, name.line);
+        }
+        return -1;
+    }
+
+    private static int addUpvalue(FunctionState state, int index, boolean isLocal, int line) {
+        for (int i = 0; i < state.upvalues.size(); i++) {
+            UpvalueRef upvalue = state.upvalues.get(i);
+            if (upvalue.index == index && upvalue.isLocal == isLocal) {
+                return i;
+            }
+        }
+        // Upvalue indices are emitted as one byte.
+        if (state.upvalues.size() == 256) {
+            throw new CompileError(line, "Too many closure variables in function.");
+        }
+        state.upvalues.add(new UpvalueRef(index, isLocal));
+        state.function.upvalueCount = state.upvalues.size();
+        return state.upvalues.size() - 1;
+    }
+
+    private void variable(Token name, boolean set) {
+        int slot = resolveLocal(current, name.symbol);
+        if (slot != -1) {
+            emit(set ? OpCode.SET_LOCAL : OpCode.GET_LOCAL);
+            emit(slot);
+            return;
+        }
+        int upvalue = resolveUpvalue(current, name);
+        if (upvalue != -1) {
+            emit(set ? OpCode.SET_UPVALUE : OpCode.GET_UPVALUE);
+            emit(upvalue);
+            return;
+        }
+        emitConstant(set ? OpCode.SET_GLOBAL : OpCode.GET_GLOBAL, name.symbol);
+    }
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        compile(expr.value);
+        track(expr.name);
+        variable(expr.name, true);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        compile(expr.left);
+        compile(expr.right);
+        track(expr.operator);
+        switch (expr.operator.type) {
+            case EQUAL_EQUAL -> emit(OpCode.EQUAL);
+            case BANG_EQUAL -> emit(OpCode.NOT_EQUAL);
+            case GREATER -> emit(OpCode.GREATER);
+            case GREATER_EQUAL -> emit(OpCode.GREATER_EQUAL);
+            case LESS -> emit(OpCode.LESS);
+            case LESS_EQUAL -> emit(OpCode.LESS_EQUAL);
+            case PLUS -> emit(OpCode.ADD);
+            case MINUS -> emit(OpCode.SUBTRACT);
+            case STAR -> emit(OpCode.MULTIPLY);
+            case SLASH -> emit(OpCode.DIVIDE);
+            default -> throw new CompileError(line, "Unknown binary operator " + expr.operator.lexeme + ".");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Call expr) {
+        compile(expr.callee);
+        if (expr.arguments.size() > 255) {
+            throw new CompileError(line, "Can't have more than 255 arguments.");
+        }
+        for (Expr argument : expr.arguments) {
+            compile(argument);
+        }
+        emit(OpCode.CALL);
+        emit(expr.arguments.size());
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        if (expr.value == null) {
+            emit(OpCode.NIL);
+        } else if (expr.value instanceof Boolean) {
+            emit((Boolean) expr.value ? OpCode.TRUE : OpCode.FALSE);
+        } else {
+            emitConstant(OpCode.CONSTANT, expr.value);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Logical expr) {
+        compile(expr.left);
+        track(expr.operator);
+        switch (expr.operator.type) {
+            case AND -> {
+                int end = emitJump(OpCode.JUMP_IF_FALSE);
+                emit(OpCode.POP);
+                compile(expr.right);
+                patchJump(end);
+            }
+            case OR -> {
+                int elseJump = emitJump(OpCode.JUMP_IF_FALSE);
+                int end = emitJump(OpCode.JUMP);
+                patchJump(elseJump);
+                emit(OpCode.POP);
+                compile(expr.right);
+                patchJump(end);
+            }
+            default -> throw new CompileError(line, "Unknown logical operator " + expr.operator.lexeme + ".");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        compile(expr.right);
+        track(expr.operator);
+        switch (expr.operator.type) {
+            case MINUS -> emit(OpCode.NEGATE);
+            case BANG -> emit(OpCode.NOT);
+            default -> throw new CompileError(line, "Unknown unary operator " + expr.operator.lexeme + ".");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        track(expr.name);
+        variable(expr.name, false);
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        beginScope();
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        compile(stmt.expression);
+        emit(OpCode.POP);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Function stmt) {
+        track(stmt.name);
+        boolean local = current.scopeDepth > 0;
+        if (local) {
+            // Declared up front so the body can refer to itself recursively.
+            addLocal(stmt.name);
+        }
+
+        FunctionState state = new FunctionState(current, new FunctionProto(stmt.name.lexeme, stmt.parameters.size()));
+        current = state;
+        beginScope();
+        for (Token param : stmt.parameters) {
+            addLocal(param);
+        }
+        for (Stmt statement : stmt.body) {
+            compile(statement);
+        }
+        emit(OpCode.NIL);
+        emit(OpCode.RETURN);
+        state.function.chunk.seal();
+        current = state.enclosing;
+
+        track(stmt.name);
+        emitConstant(OpCode.CLOSURE, state.function);
+        for (UpvalueRef upvalue : state.upvalues) {
+            emit(upvalue.isLocal ? 1 : 0);
+            emit(upvalue.index);
+        }
+        if (!local) {
+            emitConstant(OpCode.DEFINE_GLOBAL, stmt.name.symbol);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        compile(stmt.condition);
+        int thenJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP);
+        compile(stmt.thenBranch);
+        int elseJump = emitJump(OpCode.JUMP);
+        patchJump(thenJump);
+        emit(OpCode.POP);
+        compile(stmt.elseBranch);
+        patchJump(elseJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        compile(stmt.expression);
+        emit(OpCode.PRINT);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Return stmt) {
+        if (stmt.value != null) {
+            compile(stmt.value);
+        } else {
+            emit(OpCode.NIL);
+        }
+        emit(OpCode.RETURN);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        if (stmt.initializer != null) {
+            compile(stmt.initializer);
+        } else {
+            emit(OpCode.NIL);
+        }
+        track(stmt.name);
+        if (current.scopeDepth == 0) {
+            emitConstant(OpCode.DEFINE_GLOBAL, stmt.name.symbol);
+            return null;
+        }
+        for (int i = current.locals.size() - 1; i > 0; i--) {
+            Local local = current.locals.get(i);
+            if (local.depth < current.scopeDepth) break;
+            if (local.name == stmt.name.symbol) {
+                // Redeclaration in the same scope reuses the existing slot.
+                emit(OpCode.SET_LOCAL);
+                emit(i);
+                emit(OpCode.POP);
+                return null;
+            }
+        }
+        // The initializer's value is already sitting in the new local's slot.
+        addLocal(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        int loopStart = chunk().count;
+        compile(stmt.condition);
+        int exitJump = emitJump(OpCode.JUMP_IF_FALSE);
+        emit(OpCode.POP);
+        compile(stmt.body);
+        emitLoop(loopStart);
+        patchJump(exitJump);
+        emit(OpCode.POP);
+        return null;
+    }
+}
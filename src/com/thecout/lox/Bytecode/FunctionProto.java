@@ -0,0 +1,18 @@
+package com.thecout.lox.Bytecode;
+
+public class FunctionProto {
+    final String name;
+    final int arity;
+    int upvalueCount;
+    final Chunk chunk = new Chunk();
+
+    FunctionProto(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? "<script>" : "<fn " + name + ">";
+    }
+}
@@ -0,0 +1,13 @@
+package com.thecout.lox.Bytecode;
+
+class Upvalue {
+    // Stack slot while the variable is still live on the stack, -1 once closed.
+    int slot;
+    Object closed;
+    Upvalue next;
+
+    Upvalue(int slot, Upvalue next) {
+        this.slot = slot;
+        this.next = next;
+    }
+}
@@ -0,0 +1,283 @@
+package com.thecout.lox.Bytecode;
+
+import com.thecout.lox.Engine;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Symbol;
+import com.thecout.lox.Traversal.Optimizer;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+import com.thecout.lox.Traversal.InterpreterUtils.Natives;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stack based virtual machine for the bytecode produced by the Compiler.
+ * Alternative to the tree-walking Interpreter: the same programs run through
+ * a single switch-dispatch loop over a flat instruction array.
+ */
+public class VM implements Engine {
+    private static final int FRAMES_MAX = 1024;
+    private static final int STACK_MAX = FRAMES_MAX * 256;
+
+    private static class CallFrame {
+        Closure closure;
+        int ip;
+        int base;
+    }
+
+    private final Map<Symbol, Object> globals = new HashMap<>();
+    private final Object[] stack = new Object[STACK_MAX];
+    private final CallFrame[] frames = new CallFrame[FRAMES_MAX];
+    private int top;
+    private int frameCount;
+    private Upvalue openUpvalues;
+
+    public VM() {
+        for (int i = 0; i < FRAMES_MAX; i++) {
+            frames[i] = new CallFrame();
+        }
+        Natives.all().forEach((name, function) -> globals.put(Symbol.intern(name), function));
+    }
+
+    @Override
+    public void interpret(List<Stmt> statements) {
+        try {
+            run(new Compiler().compile(new Optimizer().optimize(statements)));
+        } catch (CompileError | RuntimeError error) {
+            error.printStackTrace();
+        }
+    }
+
+    public void run(FunctionProto script) {
+        top = 0;
+        frameCount = 0;
+        openUpvalues = null;
+        Closure closure = new Closure(script);
+        stack[top++] = closure;
+        CallFrame frame = frames[frameCount++];
+        frame.closure = closure;
+        frame.ip = 0;
+        frame.base = 0;
+        execute();
+    }
+
+    private void execute() {
+        CallFrame frame = frames[frameCount - 1];
+        byte[] code = frame.closure.function.chunk.code;
+        Object[] constants = frame.closure.function.chunk.constants;
+        int ip = frame.ip;
+        int base = frame.base;
+        Object[] stack = this.stack;
+
+        for (;;) {
+            byte op = code[ip++];
+            switch (op) {
+                case OpCode.CONSTANT -> {
+                    stack[top++] = constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                }
+                case OpCode.NIL -> stack[top++] = null;
+                case OpCode.TRUE -> stack[top++] = Boolean.TRUE;
+                case OpCode.FALSE -> stack[top++] = Boolean.FALSE;
+                case OpCode.POP -> top--;
+                case OpCode.GET_LOCAL -> stack[top++] = stack[base + (code[ip++] & 0xff)];
+                case OpCode.SET_LOCAL -> stack[base + (code[ip++] & 0xff)] = stack[top - 1];
+                case OpCode.GET_GLOBAL -> {
+                    Symbol name = (Symbol) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    Object value = globals.get(name);
+                    if (value == null && !globals.containsKey(name)) {
+                        throw error(frame, ip, "Undefined variable '" + name + "'.");
+                    }
+                    stack[top++] = value;
+                }
+                case OpCode.DEFINE_GLOBAL -> {
+                    globals.put((Symbol) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)], stack[--top]);
+                    ip += 2;
+                }
+                case OpCode.SET_GLOBAL -> {
+                    Symbol name = (Symbol) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    if (!globals.containsKey(name)) {
+                        throw error(frame, ip, "Undefined variable '" + name + "'.");
+                    }
+                    globals.put(name, stack[top - 1]);
+                }
+                case OpCode.GET_UPVALUE -> {
+                    Upvalue upvalue = frame.closure.upvalues[code[ip++] & 0xff];
+                    stack[top++] = upvalue.slot >= 0 ? stack[upvalue.slot] : upvalue.closed;
+                }
+                case OpCode.SET_UPVALUE -> {
+                    Upvalue upvalue = frame.closure.upvalues[code[ip++] & 0xff];
+                    if (upvalue.slot >= 0) {
+                        stack[upvalue.slot] = stack[top - 1];
+                    } else {
+                        upvalue.closed = stack[top - 1];
+                    }
+                }
+                case OpCode.EQUAL -> {
+                    Object b = stack[--top];
+                    stack[top - 1] = isEqual(stack[top - 1], b);
+                }
+                case OpCode.NOT_EQUAL -> {
+                    Object b = stack[--top];
+                    stack[top - 1] = !isEqual(stack[top - 1], b);
+                }
+                case OpCode.GREATER, OpCode.GREATER_EQUAL, OpCode.LESS, OpCode.LESS_EQUAL,
+                        OpCode.ADD, OpCode.SUBTRACT, OpCode.MULTIPLY, OpCode.DIVIDE -> {
+                    Object b = stack[--top];
+                    Object a = stack[top - 1];
+                    if (op == OpCode.ADD && a instanceof String && b instanceof String) {
+                        stack[top - 1] = (String) a + b;
+                        continue;
+                    }
+                    if (!(a instanceof Double) || !(b instanceof Double)) {
+                        throw error(frame, ip, "Operands must be numbers.");
+                    }
+                    double x = (Double) a;
+                    double y = (Double) b;
+                    stack[top - 1] = switch (op) {
+                        case OpCode.GREATER -> x > y;
+                        case OpCode.GREATER_EQUAL -> x >= y;
+                        case OpCode.LESS -> x < y;
+                        case OpCode.LESS_EQUAL -> x <= y;
+                        case OpCode.ADD -> x + y;
+                        case OpCode.SUBTRACT -> x - y;
+                        case OpCode.MULTIPLY -> x * y;
+                        default -> x / y;
+                    };
+                }
+                case OpCode.NOT -> stack[top - 1] = isFalsey(stack[top - 1]);
+                case OpCode.NEGATE -> {
+                    if (!(stack[top - 1] instanceof Double)) {
+                        throw error(frame, ip, "Operand must be a number.");
+                    }
+                    stack[top - 1] = -(Double) stack[top - 1];
+                }
+                case OpCode.PRINT -> System.out.println(stack[--top]);
+                case OpCode.JUMP -> ip += (((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)) + 2;
+                case OpCode.JUMP_IF_FALSE -> {
+                    if (isFalsey(stack[top - 1])) {
+                        ip += ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    }
+                    ip += 2;
+                }
+                case OpCode.LOOP -> ip -= (((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)) - 2;
+                case OpCode.CALL -> {
+                    int argCount = code[ip++] & 0xff;
+                    Object callee = stack[top - argCount - 1];
+                    if (callee instanceof Closure) {
+                        Closure closure = (Closure) callee;
+                        if (closure.function.arity != argCount) {
+                            throw error(frame, ip, "Expected " + closure.function.arity
+                                    + " arguments but got " + argCount + ".");
+                        }
+                        if (frameCount == FRAMES_MAX) {
+                            throw error(frame, ip, "Stack overflow.");
+                        }
+                        frame.ip = ip;
+                        frame = frames[frameCount++];
+                        frame.closure = closure;
+                        frame.base = top - argCount - 1;
+                        code = closure.function.chunk.code;
+                        constants = closure.function.chunk.constants;
+                        ip = 0;
+                        base = frame.base;
+                    } else if (callee instanceof LoxCallable) {
+                        LoxCallable callable = (LoxCallable) callee;
+                        if (callable.arity() != argCount) {
+                            throw error(frame, ip, "Expected " + callable.arity()
+                                    + " arguments but got " + argCount + ".");
+                        }
+                        Object[] arguments = Arrays.copyOfRange(stack, top - argCount, top);
+                        // Natives never look at the interpreter they are handed.
+                        Object result = callable.call(null, arguments);
+                        top -= argCount + 1;
+                        stack[top++] = result;
+                    } else {
+                        throw error(frame, ip, "Can only call functions.");
+                    }
+                }
+                case OpCode.CLOSURE -> {
+                    FunctionProto function = (FunctionProto) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    Closure closure = new Closure(function);
+                    for (int i = 0; i < closure.upvalues.length; i++) {
+                        boolean isLocal = code[ip++] == 1;
+                        int index = code[ip++] & 0xff;
+                        closure.upvalues[i] = isLocal ? captureUpvalue(base + index) : frame.closure.upvalues[index];
+                    }
+                    stack[top++] = closure;
+                }
+                case OpCode.CLOSE_UPVALUE -> {
+                    closeUpvalues(top - 1);
+                    top--;
+                }
+                case OpCode.RETURN -> {
+                    Object result = stack[--top];
+                    closeUpvalues(base);
+                    frameCount--;
+                    if (frameCount == 0) {
+                        top = 0;
+                        return;
+                    }
+                    top = base;
+                    stack[top++] = result;
+                    frame = frames[frameCount - 1];
+                    code = frame.closure.function.chunk.code;
+                    constants = frame.closure.function.chunk.constants;
+                    ip = frame.ip;
+                    base = frame.base;
+                }
+                default -> throw error(frame, ip, "Unknown opcode " + op + ".");
+            }
+        }
+    }
+
+    private Upvalue captureUpvalue(int slot) {
+        Upvalue previous = null;
+        Upvalue upvalue = openUpvalues;
+        while (upvalue != null && upvalue.slot > slot) {
+            previous = upvalue;
+            upvalue = upvalue.next;
+        }
+        if (upvalue != null && upvalue.slot == slot) {
+            return upvalue;
+        }
+        Upvalue created = new Upvalue(slot, upvalue);
+        if (previous == null) {
+            openUpvalues = created;
+        } else {
+            previous.next = created;
+        }
+        return created;
+    }
+
+    private void closeUpvalues(int last) {
+        while (openUpvalues != null && openUpvalues.slot >= last) {
+            Upvalue upvalue = openUpvalues;
+            upvalue.closed = stack[upvalue.slot];
+            upvalue.slot = -1;
+            openUpvalues = upvalue.next;
+        }
+    }
+
+    private static boolean isFalsey(Object value) {
+        return value == null || value == Boolean.FALSE || (value instanceof Boolean && !(Boolean) value);
+    }
+
+    private static boolean isEqual(Object a, Object b) {
+        if (a instanceof Double && b instanceof Double) {
+            return (double) (Double) a == (double) (Double) b;
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static RuntimeError error(CallFrame frame, int ip, String message) {
+        int[] lines = frame.closure.function.chunk.lines;
+        return new RuntimeError(lines[Math.max(0, ip - 1)], message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+
+import java.util.List;
+
+/**
+ * Common entry point of the execution engines, so callers can pick between
+ * the tree-walking Interpreter and the bytecode VM.
+ */
+public interface Engine {
+    void interpret(List<Stmt> statements);
+}
@@ -0,0 +1,108 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.OutputSink;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs many small scripts concurrently, each in its own Interpreter. The
+ * interpreters share nothing mutable: the natives are one read-only layer
+ * under every interpreter's globals, and each script prints into its own
+ * buffer, so scripts never contend on System.out. Errors are not printed
+ * either: a script that fails to parse or run fails its future instead.
+ */
+public class ExecutionService implements AutoCloseable {
+    private final ExecutorService executor;
+    // Applied to every new Interpreter, e.g. to set step or time limits.
+    private final Consumer<Interpreter> setup;
+    // Prepared programs shared by all runs, or null to parse every run.
+    private final ProgramCache programs;
+
+    /**
+     * Runs scripts on virtual threads when the JDK has them, otherwise on
+     * one platform thread per core.
+     */
+    public ExecutionService() {
+        this(defaultExecutor());
+    }
+
+    public ExecutionService(ExecutorService executor) {
+        this(executor, interpreter -> {
+        });
+    }
+
+    public ExecutionService(ExecutorService executor, Consumer<Interpreter> setup) {
+        this(executor, setup, null);
+    }
+
+    public ExecutionService(ExecutorService executor, Consumer<Interpreter> setup, ProgramCache programs) {
+        this.executor = executor;
+        this.setup = setup;
+        this.programs = programs;
+    }
+
+    private static ExecutorService defaultExecutor() {
+        try {
+            // Looked up reflectively so the build does not need JDK 21.
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Interprets the source on the executor, taking the prepared program
+     * from the cache when there is one. The future completes with everything
+     * the script printed, or fails with the SyntaxError or RuntimeError that
+     * stopped it.
+     */
+    public Future<String> submit(String source) {
+        return executor.submit(() -> run(programs != null ? programs.get(source) : ProgramCache.prepare(source), setup));
+    }
+
+    /**
+     * Runs the source on the calling thread and returns what it printed,
+     * throwing the SyntaxError or RuntimeError that stopped it.
+     */
+    public static String run(String source) {
+        return run(ProgramCache.prepare(source), interpreter -> {
+        });
+    }
+
+    private static String run(List<Stmt> program, Consumer<Interpreter> setup) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter();
+        setup.accept(interpreter);
+        interpreter.setOutput(new OutputSink(output));
+        interpreter.setErrorHandler(error -> {
+            throw error;
+        });
+        interpreter.interpretPrepared(program);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Waits for the submitted scripts to finish. When the waiting thread is
+     * interrupted, the scripts still running are cancelled and the
+     * interrupt flag is restored.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
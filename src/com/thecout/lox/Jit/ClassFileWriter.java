@@ -0,0 +1,264 @@
+package com.thecout.lox.Jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal class file emitter for the handful of instructions the JvmCompiler
+ * needs. Classes are written as version 49 (Java 5) so the verifier infers
+ * types itself and no StackMapTable has to be computed.
+ */
+class ClassFileWriter {
+    private static final int VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+    private final List<byte[]> methods = new ArrayList<>();
+    private final int thisClass;
+    private final int superClass;
+    private final int codeAttribute;
+
+    ClassFileWriter(String internalName) {
+        thisClass = classRef(internalName);
+        superClass = classRef("java/lang/Object");
+        codeAttribute = utf8("Code");
+    }
+
+    int utf8(String value) {
+        return entry("U" + value, 1, out -> out.writeUTF(value), 1);
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, 7, out -> out.writeShort(name), 1);
+    }
+
+    int doubleConstant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        return entry("D" + bits, 6, out -> out.writeLong(bits), 2);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = entry("N" + name + descriptor, 12, out -> {
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        }, 1);
+        return entry("M" + owner + "." + name + descriptor, 10, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        }, 1);
+    }
+
+    private interface EntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int entry(String key, int tag, EntryWriter writer, int width) {
+        Integer existing = poolIndex.get(key);
+        if (existing != null) return existing;
+        try {
+            poolOut.writeByte(tag);
+            writer.write(poolOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int index = poolCount;
+        poolCount += width;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    void addStaticMethod(String name, String descriptor, Code code) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        byte[] bytecode = code.toByteArray();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(ACC_PUBLIC | ACC_STATIC);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static class Label {
+        int position = -1;
+        private final List<Integer> fixups = new ArrayList<>();
+    }
+
+    /**
+     * Instruction buffer for a single method body. Keeps track of the operand
+     * stack depth as instructions are appended so max_stack comes for free.
+     */
+    static class Code {
+        static final int DLOAD = 0x18;
+        static final int DSTORE = 0x39;
+        static final int ALOAD = 0x19;
+        static final int AALOAD = 0x32;
+        static final int ICONST_0 = 0x03;
+        static final int ICONST_1 = 0x04;
+        static final int DCONST_0 = 0x0e;
+        static final int DCONST_1 = 0x0f;
+        static final int LDC2_W = 0x14;
+        static final int SIPUSH = 0x11;
+        static final int DADD = 0x63;
+        static final int DSUB = 0x67;
+        static final int DMUL = 0x6b;
+        static final int DDIV = 0x6f;
+        static final int DNEG = 0x77;
+        static final int IXOR = 0x82;
+        static final int DCMPL = 0x97;
+        static final int DCMPG = 0x98;
+        static final int IFEQ = 0x99;
+        static final int IFNE = 0x9a;
+        static final int IFLT = 0x9b;
+        static final int IFGE = 0x9c;
+        static final int IFGT = 0x9d;
+        static final int IFLE = 0x9e;
+        static final int GOTO = 0xa7;
+        static final int DRETURN = 0xaf;
+        static final int ARETURN = 0xb0;
+        static final int POP = 0x57;
+        static final int POP2 = 0x58;
+        static final int DUP2 = 0x5c;
+        static final int CHECKCAST = 0xc0;
+        static final int INVOKEVIRTUAL = 0xb6;
+        static final int INVOKESTATIC = 0xb8;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Label> labels = new ArrayList<>();
+        private int stack;
+        int maxStack;
+        int maxLocals;
+
+        int position() {
+            return bytes.size();
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        void op(int opcode, int stackDelta) {
+            bytes.write(opcode);
+            adjust(stackDelta);
+        }
+
+        void local(int opcode, int index, int stackDelta) {
+            if (index > 0xff) {
+                throw new IllegalStateException("Too many locals");
+            }
+            bytes.write(opcode);
+            bytes.write(index);
+            maxLocals = Math.max(maxLocals, index + 2);
+            adjust(stackDelta);
+        }
+
+        void constantRef(int opcode, int index, int stackDelta) {
+            bytes.write(opcode);
+            bytes.write(index >> 8);
+            bytes.write(index);
+            adjust(stackDelta);
+        }
+
+        void sipush(int value) {
+            bytes.write(SIPUSH);
+            bytes.write(value >> 8);
+            bytes.write(value);
+            adjust(1);
+        }
+
+        void jump(int opcode, Label target, int stackDelta) {
+            target.fixups.add(position());
+            if (!labels.contains(target)) labels.add(target);
+            bytes.write(opcode);
+            bytes.write(0);
+            bytes.write(0);
+            adjust(stackDelta);
+        }
+
+        void mark(Label label) {
+            label.position = position();
+            if (!labels.contains(label)) labels.add(label);
+        }
+
+        // Branches that merge into a label carry a known stack depth; unconditional
+        // jumps leave the following code unreachable, so the caller resets it.
+        void setStack(int depth) {
+            stack = depth;
+        }
+
+        int stack() {
+            return stack;
+        }
+
+        byte[] toByteArray() {
+            byte[] code = bytes.toByteArray();
+            if (code.length > Short.MAX_VALUE) {
+                throw new IllegalStateException("Method too large");
+            }
+            for (Label label : labels) {
+                for (int at : label.fixups) {
+                    int offset = label.position - at;
+                    code[at + 1] = (byte) (offset >> 8);
+                    code[at + 2] = (byte) offset;
+                }
+            }
+            return code;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.thecout.lox.Jit;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Entry point into a Lox function that the JvmCompiler turned into a hidden
+ * class. The compiled body only handles numbers, so callers check accepts()
+ * first and fall back to the interpreter for anything else.
+ */
+public class CompiledFunction {
+    private final MethodHandle entry;
+    private final int arity;
+
+    CompiledFunction(MethodHandle entry, int arity) {
+        this.entry = entry;
+        this.arity = arity;
+    }
+
+    public boolean accepts(Object[] arguments) {
+        if (arguments.length != arity) return false;
+        for (Object argument : arguments) {
+            if (!(argument instanceof Double)) return false;
+        }
+        return true;
+    }
+
+    public Object invoke(Object[] arguments) {
+        try {
+            return (Object) entry.invokeExact(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
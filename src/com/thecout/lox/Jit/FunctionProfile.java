@@ -0,0 +1,69 @@
+package com.thecout.lox.Jit;
+
+import com.thecout.lox.Parser.Stmts.Function;
+
+/**
+ * Execution counters of one function declaration, shared by every closure
+ * created from it. Once invocations plus loop back-edges reach the threshold
+ * the function is handed to the JvmCompiler; later calls use the compiled
+ * body. A call that is already running stays in the interpreter until it
+ * returns.
+ */
+public class FunctionProfile {
+    private final TieredCompilation owner;
+    private final Function declaration;
+    private long invocations;
+    private long backEdges;
+    private Tier tier = Tier.INTERPRETED;
+    private CompiledFunction compiled;
+
+    FunctionProfile(TieredCompilation owner, Function declaration) {
+        this.owner = owner;
+        this.declaration = declaration;
+    }
+
+    /**
+     * Counts a call and returns the compiled body when one is available.
+     */
+    public CompiledFunction enter() {
+        if (tier == Tier.INTERPRETED && ++invocations + backEdges >= owner.threshold()) {
+            compiled = owner.promote(this);
+            tier = compiled != null ? Tier.COMPILED : Tier.UNCOMPILABLE;
+            owner.transitioned(this);
+        }
+        return compiled;
+    }
+
+    public void backEdge() {
+        backEdges++;
+    }
+
+    Function declaration() {
+        return declaration;
+    }
+
+    public String name() {
+        return declaration.name.lexeme;
+    }
+
+    public int line() {
+        return declaration.name.line;
+    }
+
+    public long invocations() {
+        return invocations;
+    }
+
+    public long backEdges() {
+        return backEdges;
+    }
+
+    public Tier tier() {
+        return tier;
+    }
+
+    @Override
+    public String toString() {
+        return "%s@%d %s (%d calls, %d back-edges)".formatted(name(), line(), tier, invocations, backEdges);
+    }
+}
@@ -0,0 +1,393 @@
+package com.thecout.lox.Jit;
+
+import com.thecout.lox.Jit.ClassFileWriter.Code;
+import com.thecout.lox.Jit.ClassFileWriter.Label;
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Token;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles numeric Lox functions to JVM bytecode and loads them as hidden
+ * classes, so HotSpot can inline and register-allocate the arithmetic.
+ * <p>
+ * Only a subset is supported: parameters and locals must be numbers, the body
+ * may use arithmetic, ordering comparisons, logical operators, if, while,
+ * blocks and calls to the function itself, and every path has to end in a
+ * return. Any other function is left to the interpreter. A global self-call
+ * is bound to the compiled body directly. That is only done when the
+ * PurityAnalysis found the name is never declared again or assigned, since
+ * otherwise the call could reach another function.
+ */
+public class JvmCompiler {
+    private static final String CLASS_NAME = "com/thecout/lox/Jit/CompiledLoxFunction";
+    private static final CompiledFunction UNSUPPORTED = new CompiledFunction(null, -1);
+
+    private final Map<Function, CompiledFunction> cache = new HashMap<>();
+
+    /**
+     * Returns the compiled form of the function, or null when the function
+     * uses something the backend does not handle.
+     */
+    public CompiledFunction compile(Function function) {
+        CompiledFunction compiled = cache.computeIfAbsent(function, this::define);
+        return compiled == UNSUPPORTED ? null : compiled;
+    }
+
+    private CompiledFunction define(Function function) {
+        byte[] bytes;
+        try {
+            bytes = emit(function);
+        } catch (Unsupported | IllegalStateException e) {
+            return UNSUPPORTED;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle entry = lookup.findStatic(lookup.lookupClass(), "invoke",
+                    MethodType.methodType(Object.class, Object[].class));
+            return new CompiledFunction(entry, function.parameters.size());
+        } catch (IllegalAccessException | NoSuchMethodException | LinkageError e) {
+            return UNSUPPORTED;
+        }
+    }
+
+    private static byte[] emit(Function function) {
+        int arity = function.parameters.size();
+        String descriptor = "(" + "D".repeat(arity) + ")D";
+        ClassFileWriter writer = new ClassFileWriter(CLASS_NAME);
+
+        Code body = new MethodEmitter(writer, function, descriptor).emit();
+        writer.addStaticMethod("body", descriptor, body);
+
+        Code invoke = new Code();
+        for (int i = 0; i < arity; i++) {
+            invoke.local(Code.ALOAD, 0, 1);
+            invoke.sipush(i);
+            invoke.op(Code.AALOAD, -1);
+            invoke.constantRef(Code.CHECKCAST, writer.classRef("java/lang/Double"), 0);
+            invoke.constantRef(Code.INVOKEVIRTUAL, writer.methodRef("java/lang/Double", "doubleValue", "()D"), 1);
+        }
+        invoke.constantRef(Code.INVOKESTATIC, writer.methodRef(CLASS_NAME, "body", descriptor), 2 - 2 * arity);
+        invoke.constantRef(Code.INVOKESTATIC, writer.methodRef("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;"), -1);
+        invoke.op(Code.ARETURN, -1);
+        invoke.maxLocals = Math.max(invoke.maxLocals, 1);
+        writer.addStaticMethod("invoke", "([Ljava/lang/Object;)Ljava/lang/Object;", invoke);
+
+        return writer.toByteArray();
+    }
+
+    private static class Unsupported extends RuntimeException {
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private enum Kind {NUMBER, BOOLEAN}
+
+    /**
+     * Emits the body of one function. Expressions return the kind of value they
+     * leave on the operand stack, statements whether they always return.
+     */
+    private static class MethodEmitter implements ExprVisitor<Kind>, StmtVisitor<Boolean> {
+        private final ClassFileWriter writer;
+        private final Function function;
+        private final String descriptor;
+        private final Code code = new Code();
+        private final List<Map<String, Integer>> scopes = new ArrayList<>();
+        private int nextLocal;
+
+        MethodEmitter(ClassFileWriter writer, Function function, String descriptor) {
+            this.writer = writer;
+            this.function = function;
+            this.descriptor = descriptor;
+        }
+
+        Code emit() {
+            scopes.add(new HashMap<>());
+            for (Token param : function.parameters) {
+                declare(param);
+            }
+            if (!statements(function.body)) {
+                throw new Unsupported();
+            }
+            code.maxLocals = Math.max(code.maxLocals, nextLocal);
+            return code;
+        }
+
+        private int declare(Token name) {
+            int slot = nextLocal;
+            nextLocal += 2;
+            scopes.get(scopes.size() - 1).put(name.lexeme, slot);
+            return slot;
+        }
+
+        private Integer lookup(String name) {
+            for (int i = scopes.size() - 1; i >= 0; i--) {
+                Integer slot = scopes.get(i).get(name);
+                if (slot != null) return slot;
+            }
+            return null;
+        }
+
+        private boolean statements(List<Stmt> statements) {
+            for (Stmt statement : statements) {
+                if (statement == null) throw new Unsupported();
+                // Anything after a statement that always returns is unreachable.
+                if (statement.accept(this)) return true;
+            }
+            return false;
+        }
+
+        private void number(Expr expr) {
+            if (expr == null || expr.accept(this) != Kind.NUMBER) throw new Unsupported();
+        }
+
+        private void condition(Expr expr) {
+            if (expr == null || expr.accept(this) != Kind.BOOLEAN) throw new Unsupported();
+        }
+
+        // Turns the outcome of a conditional jump to falseLabel into 0 or 1.
+        private Kind materialize(Label falseLabel) {
+            Label end = new Label();
+            code.op(Code.ICONST_1, 1);
+            code.jump(Code.GOTO, end, 0);
+            code.setStack(code.stack() - 1);
+            code.mark(falseLabel);
+            code.op(Code.ICONST_0, 1);
+            code.mark(end);
+            return Kind.BOOLEAN;
+        }
+
+        @Override
+        public Kind visitAssignExpr(Assign expr) {
+            Integer slot = lookup(expr.name.lexeme);
+            if (slot == null) throw new Unsupported();
+            number(expr.value);
+            code.op(Code.DUP2, 2);
+            code.local(Code.DSTORE, slot, -2);
+            return Kind.NUMBER;
+        }
+
+        @Override
+        public Kind visitBinaryExpr(Binary expr) {
+            number(expr.left);
+            number(expr.right);
+            switch (expr.operator.type) {
+                case PLUS -> code.op(Code.DADD, -2);
+                case MINUS -> code.op(Code.DSUB, -2);
+                case STAR -> code.op(Code.DMUL, -2);
+                case SLASH -> code.op(Code.DDIV, -2);
+                default -> {
+                    return compare(expr.operator);
+                }
+            }
+            return Kind.NUMBER;
+        }
+
+        private Kind compare(Token operator) {
+            // dcmpg/dcmpl are picked so that a NaN operand makes the comparison false.
+            int compare;
+            int jumpIfFalse;
+            switch (operator.type) {
+                case GREATER -> {
+                    compare = Code.DCMPL;
+                    jumpIfFalse = Code.IFLE;
+                }
+                case GREATER_EQUAL -> {
+                    compare = Code.DCMPL;
+                    jumpIfFalse = Code.IFLT;
+                }
+                case LESS -> {
+                    compare = Code.DCMPG;
+                    jumpIfFalse = Code.IFGE;
+                }
+                case LESS_EQUAL -> {
+                    compare = Code.DCMPG;
+                    jumpIfFalse = Code.IFGT;
+                }
+                // The interpreter only compares booleans for equality, so
+                // compiling == and != on numbers would change the result.
+                default -> throw new Unsupported();
+            }
+            code.op(compare, -3);
+            Label falseLabel = new Label();
+            code.jump(jumpIfFalse, falseLabel, -1);
+            return materialize(falseLabel);
+        }
+
+        @Override
+        public Kind visitCallExpr(Call expr) {
+            if (!(expr.callee instanceof Variable)) throw new Unsupported();
+            String name = ((Variable) expr.callee).name.lexeme;
+            boolean selfCall = function.slot < 0
+                    && !function.rebound
+                    && name.equals(function.name.lexeme)
+                    && lookup(name) == null
+                    && expr.arguments.size() == function.parameters.size();
+            if (!selfCall) throw new Unsupported();
+            for (Expr argument : expr.arguments) {
+                number(argument);
+            }
+            int arguments = expr.arguments.size();
+            code.constantRef(Code.INVOKESTATIC, writer.methodRef(CLASS_NAME, "body", descriptor), 2 - 2 * arguments);
+            return Kind.NUMBER;
+        }
+
+        @Override
+        public Kind visitGroupingExpr(Grouping expr) {
+            return expr.expression.accept(this);
+        }
+
+        @Override
+        public Kind visitLiteralExpr(Literal expr) {
+            if (expr.value instanceof Double) {
+                double value = (Double) expr.value;
+                if (Double.doubleToRawLongBits(value) == 0L) {
+                    code.op(Code.DCONST_0, 2);
+                } else if (value == 1.0) {
+                    code.op(Code.DCONST_1, 2);
+                } else {
+                    code.constantRef(Code.LDC2_W, writer.doubleConstant(value), 2);
+                }
+                return Kind.NUMBER;
+            }
+            if (expr.value instanceof Boolean) {
+                code.op((Boolean) expr.value ? Code.ICONST_1 : Code.ICONST_0, 1);
+                return Kind.BOOLEAN;
+            }
+            throw new Unsupported();
+        }
+
+        @Override
+        public Kind visitLogicalExpr(Logical expr) {
+            Label shortCircuit = new Label();
+            condition(expr.left);
+            switch (expr.operator.type) {
+                case AND -> {
+                    code.jump(Code.IFEQ, shortCircuit, -1);
+                    condition(expr.right);
+                    code.jump(Code.IFEQ, shortCircuit, -1);
+                    return materialize(shortCircuit);
+                }
+                case OR -> {
+                    Label falseLabel = new Label();
+                    Label end = new Label();
+                    code.jump(Code.IFNE, shortCircuit, -1);
+                    condition(expr.right);
+                    code.jump(Code.IFEQ, falseLabel, -1);
+                    code.mark(shortCircuit);
+                    code.op(Code.ICONST_1, 1);
+                    code.jump(Code.GOTO, end, 0);
+                    code.setStack(code.stack() - 1);
+                    code.mark(falseLabel);
+                    code.op(Code.ICONST_0, 1);
+                    code.mark(end);
+                    return Kind.BOOLEAN;
+                }
+                default -> throw new Unsupported();
+            }
+        }
+
+        @Override
+        public Kind visitUnaryExpr(Unary expr) {
+            switch (expr.operator.type) {
+                case MINUS -> {
+                    number(expr.right);
+                    code.op(Code.DNEG, 0);
+                    return Kind.NUMBER;
+                }
+                case BANG -> {
+                    condition(expr.right);
+                    code.op(Code.ICONST_1, 1);
+                    code.op(Code.IXOR, -1);
+                    return Kind.BOOLEAN;
+                }
+                default -> throw new Unsupported();
+            }
+        }
+
+        @Override
+        public Kind visitVariableExpr(Variable expr) {
+            Integer slot = lookup(expr.name.lexeme);
+            if (slot == null) throw new Unsupported();
+            code.local(Code.DLOAD, slot, 2);
+            return Kind.NUMBER;
+        }
+
+        @Override
+        public Boolean visitBlockStmt(Block stmt) {
+            scopes.add(new HashMap<>());
+            boolean returns = statements(stmt.statements);
+            scopes.remove(scopes.size() - 1);
+            return returns;
+        }
+
+        @Override
+        public Boolean visitExpressionStmt(Expression stmt) {
+            Kind kind = stmt.expression.accept(this);
+            code.op(kind == Kind.NUMBER ? Code.POP2 : Code.POP, kind == Kind.NUMBER ? -2 : -1);
+            return false;
+        }
+
+        @Override
+        public Boolean visitFunctionStmt(Function stmt) {
+            throw new Unsupported();
+        }
+
+        @Override
+        public Boolean visitIfStmt(If stmt) {
+            Label elseLabel = new Label();
+            Label end = new Label();
+            condition(stmt.condition);
+            code.jump(Code.IFEQ, elseLabel, -1);
+            boolean thenReturns = stmt.thenBranch.accept(this);
+            if (!thenReturns) {
+                code.jump(Code.GOTO, end, 0);
+            }
+            code.mark(elseLabel);
+            boolean elseReturns = stmt.elseBranch != null && stmt.elseBranch.accept(this);
+            code.mark(end);
+            return thenReturns && elseReturns;
+        }
+
+        @Override
+        public Boolean visitPrintStmt(Print stmt) {
+            throw new Unsupported();
+        }
+
+        @Override
+        public Boolean visitReturnStmt(Return stmt) {
+            number(stmt.value);
+            code.op(Code.DRETURN, -2);
+            return true;
+        }
+
+        @Override
+        public Boolean visitVarStmt(Var stmt) {
+            number(stmt.initializer);
+            int slot = declare(stmt.name);
+            code.local(Code.DSTORE, slot, -2);
+            return false;
+        }
+
+        @Override
+        public Boolean visitWhileStmt(While stmt) {
+            Label start = new Label();
+            Label end = new Label();
+            code.mark(start);
+            condition(stmt.condition);
+            code.jump(Code.IFEQ, end, -1);
+            stmt.body.accept(this);
+            code.jump(Code.GOTO, start, 0);
+            code.mark(end);
+            return false;
+        }
+    }
+}
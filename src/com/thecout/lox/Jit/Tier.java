@@ -0,0 +1,5 @@
+package com.thecout.lox.Jit;
+
+public enum Tier {
+    INTERPRETED, COMPILED, UNCOMPILABLE
+}
@@ -0,0 +1,75 @@
+package com.thecout.lox.Jit;
+
+import com.thecout.lox.Parser.Stmts.Function;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps cold functions in the tree-walking interpreter and promotes hot ones
+ * to the JvmCompiler tier. Every promotion attempt is reported to the
+ * registered listeners and counted in the metrics below.
+ */
+public class TieredCompilation {
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private final JvmCompiler compiler;
+    private final int threshold;
+    private final Map<Function, FunctionProfile> profiles = new HashMap<>();
+    private final List<Consumer<FunctionProfile>> listeners = new ArrayList<>();
+    private int promotions;
+    private int failedPromotions;
+
+    public TieredCompilation() {
+        this(new JvmCompiler(), DEFAULT_THRESHOLD);
+    }
+
+    public TieredCompilation(JvmCompiler compiler, int threshold) {
+        this.compiler = compiler;
+        this.threshold = threshold;
+    }
+
+    public FunctionProfile profile(Function declaration) {
+        return profiles.computeIfAbsent(declaration, d -> new FunctionProfile(this, d));
+    }
+
+    public void addListener(Consumer<FunctionProfile> listener) {
+        listeners.add(listener);
+    }
+
+    int threshold() {
+        return threshold;
+    }
+
+    CompiledFunction promote(FunctionProfile profile) {
+        return compiler.compile(profile.declaration());
+    }
+
+    void transitioned(FunctionProfile profile) {
+        if (profile.tier() == Tier.COMPILED) {
+            promotions++;
+        } else {
+            failedPromotions++;
+        }
+        for (Consumer<FunctionProfile> listener : listeners) {
+            listener.accept(profile);
+        }
+    }
+
+    public Collection<FunctionProfile> profiles() {
+        return Collections.unmodifiableCollection(profiles.values());
+    }
+
+    public int promotions() {
+        return promotions;
+    }
+
+    public int failedPromotions() {
+        return failedPromotions;
+    }
+}
@@ -0,0 +1,166 @@
+package com.thecout.lox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transition tables of a DFA recognizing one Lox token. The fixed lexemes of
+ * TokenType are merged into a trie, and identifiers, numbers and strings are
+ * added as extra states, so adding a keyword only touches TokenType.
+ * Characters are first mapped to a small set of classes so each state needs
+ * one row of a few dozen entries.
+ */
+final class LexerTables {
+    static final int START = 0;
+    static final int DEAD = -1;
+
+    private static final int OTHER = 0;
+
+    private static final byte[] CLASSES = new byte[128];
+    private static final int CLASS_COUNT;
+    private static final int[] TRANSITIONS;
+    private static final TokenType[] ACCEPTING;
+    private static final boolean[] FINAL;
+
+    static {
+        List<Node> states = new ArrayList<>();
+        Node start = new Node(0, false);
+        states.add(start);
+        for (TokenType type : TokenType.values()) {
+            if (type.lexeme == null) continue;
+            Node node = start;
+            for (char c : type.lexeme.toCharArray()) {
+                Node parent = node;
+                node = parent.children.get(c);
+                if (node == null) {
+                    node = new Node(states.size(), (parent == start || parent.word) && isAlpha(c));
+                    parent.children.put(c, node);
+                    states.add(node);
+                }
+            }
+            node.type = type;
+        }
+        int identifier = states.size();
+        int number = identifier + 1;
+        int numberDot = identifier + 2;
+        int fraction = identifier + 3;
+        int string = identifier + 4;
+        int stringEnd = identifier + 5;
+        int stateCount = identifier + 6;
+
+        // Every character of a fixed lexeme gets its own class, the others
+        // are grouped by how identifiers, numbers and strings treat them.
+        char[] representatives = new char[128];
+        int classes = 1;
+        representatives[OTHER] = '\u0080';
+        for (Node node : states) {
+            for (char c : node.children.keySet()) {
+                if (CLASSES[c] == OTHER) {
+                    representatives[classes] = c;
+                    CLASSES[c] = (byte) classes++;
+                }
+            }
+        }
+        int letters = classes++;
+        int digits = classes++;
+        int quote = classes++;
+        for (char c = 0; c < 128; c++) {
+            if (CLASSES[c] != OTHER) continue;
+            if (isAlpha(c)) {
+                CLASSES[c] = (byte) letters;
+                representatives[letters] = c;
+            } else if (isDigit(c)) {
+                CLASSES[c] = (byte) digits;
+                representatives[digits] = c;
+            } else if (c == '"') {
+                CLASSES[c] = (byte) quote;
+                representatives[quote] = c;
+            }
+        }
+        CLASS_COUNT = classes;
+
+        TRANSITIONS = new int[stateCount * CLASS_COUNT];
+        ACCEPTING = new TokenType[stateCount];
+        for (int cls = 0; cls < CLASS_COUNT; cls++) {
+            char c = representatives[cls];
+            boolean word = isAlpha(c) || isDigit(c);
+            for (Node node : states) {
+                Node child = node.children.get(c);
+                int target = DEAD;
+                if (child != null) {
+                    target = child.id;
+                } else if (node == start) {
+                    if (isAlpha(c)) target = identifier;
+                    else if (isDigit(c)) target = number;
+                    else if (c == '"') target = string;
+                } else if (node.word && word) {
+                    target = identifier;
+                }
+                TRANSITIONS[node.id * CLASS_COUNT + cls] = target;
+            }
+            TRANSITIONS[identifier * CLASS_COUNT + cls] = word ? identifier : DEAD;
+            TRANSITIONS[number * CLASS_COUNT + cls] = isDigit(c) ? number : c == '.' ? numberDot : DEAD;
+            TRANSITIONS[numberDot * CLASS_COUNT + cls] = isDigit(c) ? fraction : DEAD;
+            TRANSITIONS[fraction * CLASS_COUNT + cls] = isDigit(c) ? fraction : DEAD;
+            TRANSITIONS[string * CLASS_COUNT + cls] = c == '"' ? stringEnd : string;
+            TRANSITIONS[stringEnd * CLASS_COUNT + cls] = DEAD;
+        }
+        for (Node node : states) {
+            ACCEPTING[node.id] = node.type != null ? node.type : node.word ? TokenType.IDENTIFIER : null;
+        }
+        FINAL = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            FINAL[state] = true;
+            for (int cls = 0; cls < CLASS_COUNT; cls++) {
+                if (TRANSITIONS[state * CLASS_COUNT + cls] != DEAD) FINAL[state] = false;
+            }
+        }
+        ACCEPTING[identifier] = TokenType.IDENTIFIER;
+        ACCEPTING[number] = TokenType.NUMBER;
+        ACCEPTING[fraction] = TokenType.NUMBER;
+        ACCEPTING[stringEnd] = TokenType.STRING;
+    }
+
+    static int next(int state, char c) {
+        return TRANSITIONS[state * CLASS_COUNT + (c < 128 ? CLASSES[c] : OTHER)];
+    }
+
+    static TokenType accepting(int state) {
+        return ACCEPTING[state];
+    }
+
+    // True when no further character can extend the match.
+    static boolean isFinal(int state) {
+        return FINAL[state];
+    }
+
+    static boolean isSkipped(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAlpha(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+    }
+
+    private static class Node {
+        final int id;
+        // Prefix of a keyword, so it is also a complete identifier.
+        final boolean word;
+        final Map<Character, Node> children = new HashMap<>();
+        TokenType type;
+
+        Node(int id, boolean word) {
+            this.id = id;
+            this.word = word;
+        }
+    }
+
+    private LexerTables() {
+    }
+}
@@ -10,6 +10,9 @@ public class Assign extends Expr {
 
     public final Token name;
     public final Expr value;
+    // Filled in by the Resolver; depth -1 means the variable is global.
+    public int depth = -1;
+    public int slot = -1;
 
     @Override
     public String print() {
@@ -0,0 +1,185 @@
+package com.thecout.lox.Parser;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the tokens and statements of a source text up to date while it is
+ * being edited. An edit only rescans and reparses the top-level declarations
+ * it touches; every other declaration keeps its Stmt tree and is just moved
+ * to its new offset and line.
+ */
+public class IncrementalParser {
+    private static class Declaration {
+        int start;
+        int end;
+        int line;
+        final List<Token> tokens;
+        final Stmt stmt;
+
+        Declaration(int start, int end, int line, List<Token> tokens, Stmt stmt) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+            this.tokens = tokens;
+            this.stmt = stmt;
+        }
+    }
+
+    private final StringBuilder source;
+    private final List<Declaration> declarations = new ArrayList<>();
+    private Token eof;
+    // Offset of the first unterminated string, see TokenBuffer.openString().
+    private int openString = -1;
+
+    public IncrementalParser(String source) {
+        this.source = new StringBuilder(source);
+        declarations.addAll(parse(0, source.length(), 0, false));
+    }
+
+    public List<Stmt> statements() {
+        List<Stmt> statements = new ArrayList<>(declarations.size());
+        for (Declaration declaration : declarations) {
+            statements.add(declaration.stmt);
+        }
+        return statements;
+    }
+
+    public List<Token> tokens() {
+        List<Token> tokens = new ArrayList<>();
+        for (Declaration declaration : declarations) {
+            tokens.addAll(declaration.tokens);
+        }
+        tokens.add(eof);
+        return tokens;
+    }
+
+    public String source() {
+        return source.toString();
+    }
+
+    /**
+     * Replaces removed characters at offset with inserted and returns the
+     * updated statements.
+     */
+    public List<Stmt> edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > source.length()) {
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + removed + " outside of source");
+        }
+        int lineDelta = newlines(inserted, 0, inserted.length()) - newlines(source, offset, offset + removed);
+        int lengthDelta = inserted.length() - removed;
+        source.replace(offset, offset + removed, inserted);
+        eof.line += lineDelta;
+        if (declarations.isEmpty()) {
+            declarations.addAll(parse(0, source.length(), 0, false));
+            return statements();
+        }
+
+        int editEnd = offset + removed;
+        int first = 0;
+        while (first < declarations.size() && declarations.get(first).end < offset) {
+            first++;
+        }
+        int last = declarations.size() - 1;
+        while (last > 0 && declarations.get(last).start > editEnd) {
+            last--;
+        }
+        // The declaration before the edit is reparsed too: an if statement
+        // looks at the following token to decide whether it has an else.
+        int from = Math.max(0, first - 1);
+        // A quote added after an unterminated one closes it, which changes
+        // every token in between.
+        while (openString >= 0 && from > 0 && declarations.get(from).start > openString) {
+            from--;
+        }
+        int to = Math.max(last, from);
+        // Declarations that failed to parse may be completed by the edit.
+        while (to + 1 < declarations.size() && declarations.get(to + 1).stmt == null) {
+            to++;
+        }
+
+        for (int step = 1; ; step *= 2) {
+            boolean toEnd = to == declarations.size() - 1;
+            int start = from == 0 ? 0 : declarations.get(from).start;
+            int end = toEnd ? source.length() : declarations.get(to + 1).start + lengthDelta;
+            int line = from == 0 ? 0 : declarations.get(from).line;
+            int oldEnd = end - lengthDelta;
+            List<Declaration> parsed = parse(start, end, line, !toEnd);
+            if (parsed != null) {
+                if (!toEnd && openString >= oldEnd) {
+                    openString += lengthDelta;
+                } else if (!toEnd) {
+                    // A bounded region scanned without an open string.
+                    openString = -1;
+                }
+                for (int i = to + 1; i < declarations.size(); i++) {
+                    move(declarations.get(i), lengthDelta, lineDelta);
+                }
+                declarations.subList(from, to + 1).clear();
+                declarations.addAll(from, parsed);
+                return statements();
+            }
+            // The region ended inside a token or declaration, e.g. because the
+            // edit opened a string or removed a closing brace, so take in more
+            // of the following declarations.
+            to = Math.min(declarations.size() - 1, to + step);
+        }
+    }
+
+    // Scans and parses source[start, end). When the region is followed by
+    // more declarations, returns null if a token or a declaration may
+    // continue beyond the region's end.
+    private List<Declaration> parse(int start, int end, int line, boolean bounded) {
+        TokenBuffer buffer = TokenBuffer.of(source.substring(start, end), line);
+        if (bounded && buffer.endsInsideToken()) {
+            return null;
+        }
+        List<Token> tokens = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            tokens.add(buffer.token(i));
+        }
+        if (!bounded) {
+            eof = tokens.get(tokens.size() - 1);
+            openString = buffer.openString() < 0 ? -1 : start + buffer.openString();
+        }
+        Parser parser = new Parser(tokens);
+        // Errors of an attempt that gets retried on a larger region are dropped.
+        List<Runnable> errors = new ArrayList<>();
+        parser.deferErrors(errors);
+        List<Declaration> declarations = new ArrayList<>();
+        while (!parser.isAtEnd()) {
+            int first = parser.position();
+            Stmt stmt = parser.parseDeclaration();
+            if (stmt == null && bounded && parser.isAtEnd()) {
+                return null;
+            }
+            int last = Math.max(first, parser.position() - 1);
+            declarations.add(new Declaration(start + buffer.start(first), start + buffer.end(last),
+                    buffer.line(first), new ArrayList<>(tokens.subList(first, last + 1)), stmt));
+        }
+        errors.forEach(Runnable::run);
+        return declarations;
+    }
+
+    private static void move(Declaration declaration, int lengthDelta, int lineDelta) {
+        declaration.start += lengthDelta;
+        declaration.end += lengthDelta;
+        if (lineDelta == 0) return;
+        declaration.line += lineDelta;
+        for (Token token : declaration.tokens) {
+            token.line += lineDelta;
+        }
+    }
+
+    private static int newlines(CharSequence text, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,122 @@
+package com.thecout.lox.Parser;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.TokenBuffer;
+import com.thecout.lox.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses large programs on several cores. The token buffer is cut at top
+ * level declaration boundaries, found by counting braces and parentheses,
+ * and every chunk is parsed by its own Parser in a ForkJoinPool. The chunks
+ * are joined in source order, so the result is the same list Parser.parse()
+ * returns.
+ *
+ * Chunks report no errors themselves. From the first chunk that has a syntax
+ * error on, the program is parsed sequentially instead, so errors are
+ * reported once, in source order, and with the same recovery as usual.
+ */
+public class ParallelParser {
+    private static final int DEFAULT_CHUNK_TOKENS = 16384;
+
+    private static class Chunk {
+        List<Stmt> statements;
+        boolean failed;
+    }
+
+    private final ForkJoinPool pool;
+    private final int chunkTokens;
+
+    public ParallelParser() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_TOKENS);
+    }
+
+    public ParallelParser(ForkJoinPool pool, int chunkTokens) {
+        this.pool = pool;
+        this.chunkTokens = chunkTokens;
+    }
+
+    public List<Stmt> parse(TokenBuffer tokens) {
+        int[] bounds = split(tokens);
+        if (bounds == null || bounds.length <= 2) {
+            return new Parser(tokens).parse();
+        }
+        Chunk[] chunks = new Chunk[bounds.length - 1];
+        pool.invoke(new ParseTask(tokens, bounds, chunks, 0, chunks.length));
+
+        List<Stmt> statements = new ArrayList<>();
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i].failed) {
+                statements.addAll(new Parser(tokens, bounds[i], tokens.size() - 1).parse());
+                break;
+            }
+            statements.addAll(chunks[i].statements);
+        }
+        return statements;
+    }
+
+    // Token indices where chunks start, ending with the index of EOF. Null
+    // when braces or parentheses do not balance, since declaration
+    // boundaries cannot be told apart then.
+    private int[] split(TokenBuffer tokens) {
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int depth = 0;
+        int last = tokens.size() - 1;
+        for (int i = 0; i < last; i++) {
+            TokenType type = tokens.type(i);
+            if (type == TokenType.LEFT_BRACE || type == TokenType.LEFT_PAREN) {
+                depth++;
+            } else if (type == TokenType.RIGHT_BRACE || type == TokenType.RIGHT_PAREN) {
+                if (--depth < 0) return null;
+            }
+            boolean boundary = depth == 0
+                    && (type == TokenType.SEMICOLON || type == TokenType.RIGHT_BRACE)
+                    // An if statement continues with its else branch.
+                    && tokens.type(i + 1) != TokenType.ELSE;
+            if (boundary && i + 1 - bounds.get(bounds.size() - 1) >= chunkTokens && i + 1 < last) {
+                bounds.add(i + 1);
+            }
+        }
+        if (depth != 0) return null;
+        bounds.add(last);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static class ParseTask extends RecursiveAction {
+        private final TokenBuffer tokens;
+        private final int[] bounds;
+        private final Chunk[] chunks;
+        private final int from;
+        private final int to;
+
+        ParseTask(TokenBuffer tokens, int[] bounds, Chunk[] chunks, int from, int to) {
+            this.tokens = tokens;
+            this.bounds = bounds;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(tokens, bounds, chunks, from, middle),
+                        new ParseTask(tokens, bounds, chunks, middle, to));
+                return;
+            }
+            Parser parser = new Parser(tokens, bounds[from], bounds[from + 1]);
+            List<Runnable> errors = new ArrayList<>();
+            parser.deferErrors(errors);
+            Chunk chunk = new Chunk();
+            chunk.statements = parser.parse();
+            chunk.failed = !errors.isEmpty();
+            chunks[from] = chunk;
+        }
+    }
+}
@@ -4,10 +4,12 @@ package com.thecout.lox.Parser;
 import com.thecout.lox.Parser.Expr.*;
 import com.thecout.lox.Parser.Stmts.*;
 import com.thecout.lox.Token;
+import com.thecout.lox.TokenBuffer;
 import com.thecout.lox.TokenType;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.thecout.lox.TokenType.*;
@@ -16,11 +18,44 @@ public class Parser {
     private static class ParseError extends RuntimeException {
     }
 
-    private final List<Token> tokens;
-    private int current = 0;
+    // Tokens are pulled one at a time, so a TokenStream can be parsed
+    // without materializing the whole token list.
+    private final Iterator<Token> tokens;
+    private Token current;
+    private Token previous;
+    // Alternatively tokens are read from a TokenBuffer by index, and only
+    // the ones the tree keeps are turned into Token objects.
+    private final TokenBuffer buffer;
+    // Index of the token treated as EOF, so a range of the buffer can be
+    // parsed on its own.
+    private final int end;
+    // Number of tokens consumed so far, in both modes.
+    private int index;
+    // When set, syntax errors are collected here instead of being reported.
+    private List<Runnable> deferredErrors;
+    // When set, the messages of syntax errors are collected here instead.
+    private List<String> errors;
 
     public Parser(List<Token> tokens) {
+        this(tokens.iterator());
+    }
+
+    public Parser(Iterator<Token> tokens) {
         this.tokens = tokens;
+        this.current = tokens.next();
+        this.buffer = null;
+        this.end = -1;
+    }
+
+    public Parser(TokenBuffer buffer) {
+        this(buffer, 0, buffer.size() - 1);
+    }
+
+    Parser(TokenBuffer buffer, int start, int end) {
+        this.tokens = null;
+        this.buffer = buffer;
+        this.index = start;
+        this.end = end;
     }
 
     public List<Stmt> parse() {
@@ -32,6 +67,31 @@ public class Parser {
         return statements;
     }
 
+    /**
+     * Parses the next top-level declaration, or returns null after reporting
+     * a syntax error. Together with position() this tells the
+     * IncrementalParser which tokens each declaration spans.
+     */
+    Stmt parseDeclaration() {
+        return declaration();
+    }
+
+    int position() {
+        return index;
+    }
+
+    void deferErrors(List<Runnable> reports) {
+        this.deferredErrors = reports;
+    }
+
+    /**
+     * Adds the message of every syntax error to the given list instead of
+     * printing it, so each caller can report them where it wants.
+     */
+    public void collectErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
     private Expr expression() {
         return assignment();
     }
@@ -59,6 +119,7 @@ public class Parser {
     }
 
 	private Stmt forStatement() {
+		Token keyword = previous();
 		Expr increment;
 		Expr condition;
 		consume(LEFT_PAREN, "Expect '(' after 'for'.");
@@ -76,7 +137,7 @@ public class Parser {
 		consume(RIGHT_PAREN, "");
 		Stmt stm = statement();
 		Block body = new Block(Arrays.asList(stm, new Expression(increment)));
-		return new Block(Arrays.asList(init, new While(condition, body)));
+		return new Block(Arrays.asList(init, new While(keyword, condition, body)));
 	}
 
 	private Stmt ifStatement() {
@@ -108,7 +169,8 @@ public class Parser {
     }
 
 	private Stmt varDeclaration() {
-		Token name = consume(IDENTIFIER, "");
+		consume(IDENTIFIER, "");
+		Token name = previous();
 		Expr expr = null;
 		if (match(EQUAL)) {
 			expr = expression();
@@ -119,11 +181,12 @@ public class Parser {
 	}
 
     private Stmt whileStatement() {
+        Token keyword = previous();
         consume(LEFT_PAREN, "Expect '(' after 'while'.");
         Expr condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after while expression.");
         Stmt body = statement();
-        return new While(condition, body);
+        return new While(keyword, condition, body);
     }
 
     private Stmt expressionStatement() {
@@ -133,7 +196,8 @@ public class Parser {
     }
 
 	private Function function() {
-		Token name = consume(IDENTIFIER, "Expext bla bla");
+		consume(IDENTIFIER, "Expext bla bla");
+		Token name = previous();
 		consume(LEFT_PAREN, "bla");
 		List<Token> params = new ArrayList<>();
 		if (!check(RIGHT_PAREN)) {
@@ -141,7 +205,8 @@ public class Parser {
 				if (params.size() >= 8) {
 					error(peek(), "");
 				}
-				params.add(consume(IDENTIFIER, ""));
+				consume(IDENTIFIER, "");
+				params.add(previous());
 			} while (match(COMMA));
 		}
 		consume(RIGHT_PAREN, "");
@@ -152,9 +217,10 @@ public class Parser {
 
 	private List<Stmt> block() {
 		List<Stmt> block = new ArrayList<>();
-		while (!match(RIGHT_BRACE)) {
+		while (!check(RIGHT_BRACE) && !isAtEnd()) {
 			block.add(declaration());
 		}
+		consume(RIGHT_BRACE, "Expect '}' after block.");
 		return block;
 	}
 
@@ -168,7 +234,7 @@ public class Parser {
 				Token name = ((Variable) expr).name;
 				return new Assign(name, value);
 			}
-			ParserError.error(equals, "");
+			error(equals, "");
 		}
 		return expr;
 	}
@@ -238,23 +304,26 @@ public class Parser {
 
 	private Expr unary() {
 		if (match(MINUS) || match(BANG)) {
-			return new Unary(previous(), null);
+			Token op = previous();
+			return new Unary(op, unary());
 		}
 		Expr expr = call();
 		return expr;
 	}
 
 	private Expr finishCall(Expr callee) {
-		return null;
+		List<Expr> arguments = new ArrayList<>();
+		if (!check(RIGHT_PAREN)) {
+			arguments = arguments();
+		}
+		consume(RIGHT_PAREN, "Expect ')' after arguments.");
+		return new Call(callee, arguments);
 	}
 
 	private Expr call() {
 		Expr expr = primary();
-		List<Expr> arguments = new ArrayList<>();
-		if (match((LEFT_PAREN))) {
-			arguments = arguments();
-			consume(RIGHT_PAREN, "");
-			return new Call(expr, arguments);
+		while (match(LEFT_PAREN)) {
+			expr = finishCall(expr);
 		}
 		return expr;
 	}
@@ -275,9 +344,13 @@ public class Parser {
 			return expr;
 		} else if (match(IDENTIFIER)) {
 			return new Variable(previous());
+		} else if (match(TRUE)) {
+			return new Literal(true);
+		} else if (match(FALSE)) {
+			return new Literal(false);
 		}
-		Token val = consume(tokens.get(current).type, "");
-		return new Literal(val.literal);
+		consume(peekType(), "");
+		return new Literal(buffer != null ? buffer.literal(index - 1) : previous().literal);
 	}
 
 
@@ -292,36 +365,54 @@ public class Parser {
         return false;
     }
 
-    private Token consume(TokenType type, String message) {
-        if (check(type)) return advance();
+    private void consume(TokenType type, String message) {
+        if (check(type)) {
+            advance();
+            return;
+        }
 
         throw error(peek(), message);
     }
 
     private boolean check(TokenType tokenType) {
         if (isAtEnd()) return false;
-        return peek().type == tokenType;
+        return peekType() == tokenType;
+    }
+
+    private void advance() {
+        if (isAtEnd()) return;
+        index++;
+        if (buffer == null) {
+            previous = current;
+            current = tokens.next();
+        }
     }
 
-    private Token advance() {
-        if (!isAtEnd()) current++;
-        return previous();
+    boolean isAtEnd() {
+        return peekType() == EOF;
     }
 
-    private boolean isAtEnd() {
-        return peek().type == EOF;
+    private TokenType peekType() {
+        if (buffer == null) return current.type;
+        return index < end ? buffer.type(index) : EOF;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return buffer != null ? buffer.token(index) : current;
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return buffer != null ? buffer.token(index - 1) : previous;
     }
 
     private ParseError error(Token token, String message) {
-        ParserError.error(token, message);
+        if (errors != null) {
+            errors.add(ParserError.format(token, message));
+        } else if (deferredErrors != null) {
+            deferredErrors.add(() -> ParserError.error(token, message));
+        } else {
+            ParserError.error(token, message);
+        }
         return new ParseError();
     }
 
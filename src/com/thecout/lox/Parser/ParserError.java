@@ -4,6 +4,10 @@ import com.thecout.lox.Token;
 
 public class ParserError {
     static void error(Token token, String message) {
-        System.out.printf("%d %s\n", token.line, message);
+        System.out.print(format(token, message));
+    }
+
+    static String format(Token token, String message) {
+        return String.format("%d %s\n", token.line, message);
     }
 }
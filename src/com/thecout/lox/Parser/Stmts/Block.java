@@ -9,6 +9,9 @@ public class Block extends Stmt {
     }
 
     public final List<Stmt> statements;
+    // Number of local slots declared directly in this block, filled in by the
+    // Resolver. A block with no slots runs in the enclosing environment.
+    public int frameSize;
 
     @Override
     public String print() {
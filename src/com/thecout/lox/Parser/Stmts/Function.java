@@ -17,6 +17,19 @@ public class Function extends Stmt {
     public final Token name;
     public final List<Token> parameters;
     public final List<Stmt> body;
+    // Filled in by the Resolver: slot of the function in its enclosing scope
+    // (-1 when global) and the number of slots its call frame needs.
+    public int slot = -1;
+    public int frameSize;
+    // Set when no function is declared inside the body, so nothing can
+    // capture the call's environment and a self tail call may reuse it.
+    public boolean reuseEnvironment;
+    // Set by the PurityAnalysis when the result depends only on the
+    // arguments and the call has no side effects.
+    public boolean pure;
+    // Set by the PurityAnalysis when the function is global and its name is
+    // declared again or assigned, so a call by name may reach another one.
+    public boolean rebound;
 
     @Override
     public String print() {
@@ -17,6 +17,9 @@ public class If extends Stmt {
 
     @Override
     public String print() {
+        if (elseBranch == null) {
+            return "(if %s %s)".formatted(condition.print(), thenBranch.print());
+        }
         return "(if %s %s %s)".formatted(condition.print(), thenBranch.print(), elseBranch.print());
     }
 
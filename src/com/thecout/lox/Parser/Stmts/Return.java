@@ -8,9 +8,15 @@ public class Return extends Stmt {
     }
 
     public final Expr value;
+    // Set by the Resolver when this returns the result of a call made from
+    // inside a function, so the call can replace the current one.
+    public boolean tailCall;
 
     @Override
     public String print() {
+        if (value == null) {
+            return "(return)";
+        }
         return "(return %s)".formatted(value.print());
     }
 
@@ -1,16 +1,23 @@
 package com.thecout.lox.Parser.Stmts;
 
 import com.thecout.lox.Parser.Expr.Expr;
+import com.thecout.lox.Token;
 
 public class While extends Stmt {
-    public While(Expr condition, Stmt body) {
+    public While(Token keyword, Expr condition, Stmt body) {
+        this.keyword = keyword;
         this.condition = condition;
         this.body = body;
     }
 
 
+    // The while or for keyword, for errors raised at the loop's back-edge.
+    public final Token keyword;
     public final Expr condition;
     public final Stmt body;
+    // Set by the Resolver when no closure can capture the body's environment,
+    // so one environment can serve every iteration.
+    public boolean reuseEnvironment;
 
     @Override
     public String print() {
@@ -0,0 +1,20 @@
+package com.thecout.lox.Parser;
+
+import java.util.List;
+
+/**
+ * A program that did not parse, carrying the messages the parser would
+ * otherwise have printed.
+ */
+public class SyntaxError extends RuntimeException {
+    private final List<String> errors;
+
+    public SyntaxError(List<String> errors) {
+        super(String.join("", errors).trim());
+        this.errors = List.copyOf(errors);
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,97 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Parser.SyntaxError;
+import com.thecout.lox.Traversal.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepared programs keyed by the SHA-256 hash of their source, so a script
+ * that runs again skips scanning, parsing and the static passes. Entries
+ * come from Interpreter.prepare(): the passes have already written their
+ * results into the tree and nothing changes it afterwards, so any number of
+ * interpreters on any threads can run the same entry. Holds at most
+ * capacity programs and evicts the least recently used one beyond that.
+ */
+public class ProgramCache {
+    private final Map<ByteBuffer, List<Stmt>> programs;
+    private long hits;
+    private long misses;
+
+    public ProgramCache(int capacity) {
+        programs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, List<Stmt>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the prepared program for the source, scanning and parsing it
+     * on a miss. Parsing happens outside the lock, so two threads missing
+     * the same source at once both parse it and the first one stored wins.
+     * A source with syntax errors throws a SyntaxError and is not cached.
+     */
+    public List<Stmt> get(String source) {
+        ByteBuffer key = hash(source);
+        synchronized (this) {
+            List<Stmt> program = programs.get(key);
+            if (program != null) {
+                hits++;
+                return program;
+            }
+            misses++;
+        }
+        List<Stmt> program = prepare(source);
+        synchronized (this) {
+            List<Stmt> raced = programs.putIfAbsent(key, program);
+            return raced != null ? raced : program;
+        }
+    }
+
+    /**
+     * Parses and prepares the source without caching it, throwing a
+     * SyntaxError instead of printing the parser's messages.
+     */
+    static List<Stmt> prepare(String source) {
+        Parser parser = new Parser(TokenBuffer.of(source));
+        List<String> errors = new ArrayList<>();
+        parser.collectErrors(errors);
+        List<Stmt> statements = parser.parse();
+        if (!errors.isEmpty()) {
+            throw new SyntaxError(errors);
+        }
+        return Interpreter.prepare(statements);
+    }
+
+    private static ByteBuffer hash(String source) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to implement SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return programs.size();
+    }
+}
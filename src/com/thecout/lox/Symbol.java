@@ -0,0 +1,163 @@
+package com.thecout.lox;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Interned identifier. There is exactly one Symbol per name, so names compare
+ * by identity and hash with a precomputed value, and every occurrence of an
+ * identifier shares a single String.
+ * <p>
+ * The table holds its Symbols weakly. A name that no token, tree or
+ * environment refers to any more can be collected, and interning it again
+ * later creates a new Symbol, which is safe because nothing is left to
+ * compare it with the old one. Cleared entries are dropped whenever the
+ * table is rebuilt, so a long-running process that parses many programs
+ * with distinct names keeps only the names still in use.
+ */
+public final class Symbol {
+    private static final int MIN_CAPACITY = 1024;
+
+    private static final class Entry extends WeakReference<Symbol> {
+        final int hash;
+
+        Entry(Symbol symbol) {
+            super(symbol);
+            this.hash = symbol.hash;
+        }
+    }
+
+    // Written only under the class lock. Readers probe without locking: the
+    // fields of an Entry are final, so a racing reader either finds a fully
+    // built one or falls through to the locked path.
+    private static volatile Entry[] table = new Entry[MIN_CAPACITY];
+    // Occupied slots, including entries whose Symbol has been collected.
+    private static int count;
+
+    public final String name;
+    private final int hash;
+
+    private Symbol(String name, int hash) {
+        this.name = name;
+        this.hash = hash;
+    }
+
+    public static Symbol intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    public static Symbol intern(String text, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        Symbol found = find(table, text, start, length, hash);
+        return found != null ? found : insert(text, start, length, hash);
+    }
+
+    /**
+     * Looks the name up straight from the scanner's buffer, so a String is
+     * only created the first time a name is seen.
+     */
+    public static Symbol intern(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        Symbol found = find(table, chars, start, length, hash);
+        return found != null ? found : insert(chars, start, length, hash);
+    }
+
+    // The text is either the scanner's char[] or a String.
+    private static Symbol find(Entry[] table, Object chars, int start, int length, int hash) {
+        int mask = table.length - 1;
+        int index = spread(hash) & mask;
+        for (Entry entry = table[index]; entry != null; entry = table[index]) {
+            if (entry.hash == hash) {
+                Symbol symbol = entry.get();
+                if (symbol != null && symbol.matches(chars, start, length)) {
+                    return symbol;
+                }
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static synchronized Symbol insert(Object chars, int start, int length, int hash) {
+        Symbol found = find(table, chars, start, length, hash);
+        if (found != null) {
+            return found;
+        }
+        String name = chars instanceof String
+                ? ((String) chars).substring(start, start + length)
+                : new String((char[]) chars, start, length);
+        Symbol symbol = new Symbol(name, hash);
+        Entry[] table = Symbol.table;
+        int mask = table.length - 1;
+        int index = spread(hash) & mask;
+        while (table[index] != null) {
+            index = (index + 1) & mask;
+        }
+        table[index] = new Entry(symbol);
+        if (++count * 2 > table.length) {
+            rebuild();
+        }
+        return symbol;
+    }
+
+    private boolean matches(Object chars, int start, int length) {
+        if (name.length() != length) return false;
+        if (chars instanceof String) {
+            return name.regionMatches(0, (String) chars, start, length);
+        }
+        char[] array = (char[]) chars;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != array[start + i]) return false;
+        }
+        return true;
+    }
+
+    // Copies the live entries into a table at most a quarter full, which
+    // grows it when most names are still in use and shrinks it otherwise.
+    private static void rebuild() {
+        Entry[] table = Symbol.table;
+        int live = 0;
+        for (Entry entry : table) {
+            if (entry != null && entry.get() != null) live++;
+        }
+        int capacity = MIN_CAPACITY;
+        while (live * 4 > capacity) {
+            capacity *= 2;
+        }
+        Entry[] rebuilt = new Entry[capacity];
+        int mask = rebuilt.length - 1;
+        for (Entry entry : table) {
+            if (entry == null || entry.get() == null) continue;
+            int index = spread(entry.hash) & mask;
+            while (rebuilt[index] != null) {
+                index = (index + 1) & mask;
+            }
+            rebuilt[index] = entry;
+        }
+        count = live;
+        Symbol.table = rebuilt;
+    }
+
+    static int capacity() {
+        return table.length;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
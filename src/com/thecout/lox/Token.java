@@ -4,16 +4,29 @@ public class Token {
     public final TokenType type;
     public final String lexeme;
     public final Object literal;
-    public final int line;
+    // Not final so the IncrementalParser can move reused declarations when
+    // an edit above them adds or removes lines.
+    public int line;
+    // Interned name of identifiers, null for every other token.
+    public final Symbol symbol;
 
     Token(TokenType type, String lexeme, Object literal, int line) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.symbol = type == TokenType.IDENTIFIER ? Symbol.intern(lexeme) : null;
+    }
+
+    public Token(Symbol symbol, int line) {
+        this.type = TokenType.IDENTIFIER;
+        this.lexeme = symbol.name;
+        this.literal = symbol.name;
+        this.line = line;
+        this.symbol = symbol;
     }
 
     public String toString() {
         return type + " " + lexeme + " " + literal;
     }
-}
\ No newline at end of file
+}
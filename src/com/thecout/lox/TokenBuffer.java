@@ -0,0 +1,140 @@
+package com.thecout.lox;
+
+import java.util.Arrays;
+
+/**
+ * Scanned tokens stored as parallel arrays instead of one Token object per
+ * token: a type byte, the lexeme's offsets into the source and the line.
+ * Lexemes, literals and Token objects are only built when someone asks for
+ * them, which for most punctuation and keywords is never.
+ */
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final String source;
+    private byte[] types;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int size;
+    private boolean truncated;
+    private int openString;
+
+    private TokenBuffer(String source, int capacity) {
+        this.source = source;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    public static TokenBuffer of(String source) {
+        return of(source, 0);
+    }
+
+    /**
+     * Scans source whose first line has the given number, e.g. a region cut
+     * out of a larger file.
+     */
+    public static TokenBuffer of(String source, int firstLine) {
+        // Roughly one token per four characters of typical Lox source.
+        TokenBuffer buffer = new TokenBuffer(source, Math.max(16, source.length() / 4));
+        TokenStream stream = TokenStream.of(source);
+        stream.startLine(firstLine);
+        TokenType type;
+        do {
+            type = stream.scanType();
+            buffer.add(type, stream.tokenStart(), stream.tokenEnd(), stream.tokenLine());
+        } while (type != TokenType.EOF);
+        buffer.truncated = stream.truncated();
+        buffer.openString = stream.openString();
+        return buffer;
+    }
+
+    private void add(TokenType type, int start, int end, int line) {
+        if (size == types.length) {
+            int capacity = size + (size >> 1);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * True when the source ended in the middle of a token, so scanning it as
+     * part of a longer text could give different tokens.
+     */
+    public boolean endsInsideToken() {
+        return truncated;
+    }
+
+    /**
+     * Offset of the first quote whose string is never closed, or -1. The
+     * scanner skips such a quote, so a quote added later on pairs with it.
+     */
+    public int openString() {
+        return openString;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    public String lexeme(int index) {
+        TokenType type = type(index);
+        if (type.lexeme != null) return type.lexeme;
+        return source.substring(starts[index], ends[index]);
+    }
+
+    public Object literal(int index) {
+        switch (type(index)) {
+            case IDENTIFIER:
+                return Symbol.intern(source, starts[index], ends[index] - starts[index]).name;
+            case NUMBER:
+                return Double.parseDouble(lexeme(index));
+            case STRING:
+                return source.substring(starts[index] + 1, ends[index] - 1);
+            case EOF:
+                return "";
+            default:
+                return type(index).lexeme;
+        }
+    }
+
+    public Token token(int index) {
+        TokenType type = type(index);
+        switch (type) {
+            case IDENTIFIER:
+                return new Token(Symbol.intern(source, starts[index], ends[index] - starts[index]), lines[index]);
+            case NUMBER:
+            case STRING:
+                return new Token(type, lexeme(index), literal(index), lines[index]);
+            case EOF:
+                return new Token(type, "", "", lines[index]);
+            default:
+                return new Token(type, type.lexeme, type.lexeme, lines[index]);
+        }
+    }
+}
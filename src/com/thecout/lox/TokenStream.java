@@ -0,0 +1,447 @@
+package com.thecout.lox;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull based scanner. Tokens are produced one at a time from a fixed-size
+ * character window that is refilled from the underlying source, so neither
+ * the source text nor the token list has to be held in memory as a whole.
+ * Produces the same tokens as Scanner.scan(), ending with a single EOF.
+ */
+public class TokenStream implements Iterator<Token> {
+    private static final int WINDOW = 8192;
+
+    public enum Backend {
+        // Hand-written character switch.
+        SWITCH,
+        // DFA driven by the LexerTables.
+        TABLES
+    }
+
+    private final Readable input;
+    private final Backend backend;
+    private char[] buffer;
+    private int start;
+    private int position;
+    private int limit;
+    private boolean exhausted;
+
+    // Characters dropped from the front of the window so far.
+    private int discarded;
+    // Set when the input ended while a token could still have grown.
+    private boolean truncated;
+    // Offset of the first string that never closes, its quote is skipped.
+    private int openString = -1;
+
+    private int line;
+    private int tokenLine;
+    private int lastContentLine;
+    private Token next;
+    private boolean done;
+
+    private TokenStream(Readable input, Backend backend) {
+        this.input = input;
+        this.backend = backend;
+        this.buffer = new char[WINDOW];
+    }
+
+    public static TokenStream of(CharSequence source) {
+        return of(source, Backend.TABLES);
+    }
+
+    public static TokenStream of(CharSequence source, Backend backend) {
+        return new TokenStream(new Text(source.toString()), backend);
+    }
+
+    public static TokenStream of(Reader reader) {
+        return new TokenStream(reader, Backend.TABLES);
+    }
+
+    /**
+     * Maps the file into memory and decodes it as UTF-8 window by window.
+     */
+    public static TokenStream of(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TokenStream(new Decoding(bytes), Backend.TABLES);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = backend == Backend.TABLES ? scanWithTables() : scanWithSwitch();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Token token = next;
+        next = null;
+        if (token.type == TokenType.EOF) done = true;
+        return token;
+    }
+
+    private Token scanWithSwitch() {
+        for (;;) {
+            start = position;
+            if (!available(1)) return eof();
+            char c = buffer[position++];
+            if (c == '\n') {
+                line++;
+                continue;
+            }
+            lastContentLine = line;
+            if (isDigit(c)) return number();
+            if (isAlpha(c)) return identifier();
+            switch (c) {
+                case '(': return fixed(TokenType.LEFT_PAREN, "(");
+                case ')': return fixed(TokenType.RIGHT_PAREN, ")");
+                case '{': return fixed(TokenType.LEFT_BRACE, "{");
+                case '}': return fixed(TokenType.RIGHT_BRACE, "}");
+                case ',': return fixed(TokenType.COMMA, ",");
+                case '.': return fixed(TokenType.DOT, ".");
+                case '-': return fixed(TokenType.MINUS, "-");
+                case '+': return fixed(TokenType.PLUS, "+");
+                case ';': return fixed(TokenType.SEMICOLON, ";");
+                case '/': return fixed(TokenType.SLASH, "/");
+                case '*': return fixed(TokenType.STAR, "*");
+                case '!': return match('=') ? fixed(TokenType.BANG_EQUAL, "!=") : fixed(TokenType.BANG, "!");
+                case '=': return match('=') ? fixed(TokenType.EQUAL_EQUAL, "==") : fixed(TokenType.EQUAL, "=");
+                case '>': return match('=') ? fixed(TokenType.GREATER_EQUAL, ">=") : fixed(TokenType.GREATER, ">");
+                case '<': return match('=') ? fixed(TokenType.LESS_EQUAL, "<=") : fixed(TokenType.LESS, "<");
+                case '"': {
+                    Token string = string();
+                    if (string != null) return string;
+                    break;
+                }
+                default:
+                    // Whitespace and unknown characters are skipped, like the tables do.
+                    break;
+            }
+        }
+    }
+
+    private Token scanWithTables() {
+        TokenType type = scanType();
+        switch (type) {
+            case EOF:
+                return eof();
+            case IDENTIFIER:
+                return new Token(Symbol.intern(buffer, start, position - start), tokenLine);
+            case NUMBER: {
+                String lexeme = lexeme();
+                return new Token(type, lexeme, Double.parseDouble(lexeme), tokenLine);
+            }
+            case STRING: {
+                String lexeme = lexeme();
+                return new Token(type, lexeme, lexeme.substring(1, lexeme.length() - 1), tokenLine);
+            }
+            default:
+                return new Token(type, type.lexeme, type.lexeme, tokenLine);
+        }
+    }
+
+    // Runs the DFA from the current position and keeps the longest match.
+    // Characters no token starts with are skipped. Only moves the lexeme
+    // bounds, so callers decide whether a Token is built at all.
+    TokenType scanType() {
+        for (;;) {
+            while (available(1) && LexerTables.isSkipped(buffer[position])) {
+                if (buffer[position] == '\n') {
+                    line++;
+                } else {
+                    lastContentLine = line;
+                }
+                position++;
+            }
+            start = position;
+            if (!available(1)) {
+                tokenLine = Math.max(1, lastContentLine + 1);
+                return TokenType.EOF;
+            }
+
+            int state = LexerTables.START;
+            TokenType type = null;
+            int length = 0;
+            int newlines = 0;
+            int acceptedNewlines = 0;
+            // Offsets are relative to start, which a refill may move.
+            for (;;) {
+                if (!available(1)) {
+                    truncated |= !LexerTables.isFinal(state);
+                    break;
+                }
+                char c = buffer[position];
+                state = LexerTables.next(state, c);
+                if (state == LexerTables.DEAD) break;
+                position++;
+                if (c == '\n') newlines++;
+                TokenType accepted = LexerTables.accepting(state);
+                if (accepted != null) {
+                    type = accepted;
+                    length = position - start;
+                    acceptedNewlines = newlines;
+                }
+            }
+            if (type == null) {
+                if (openString < 0 && buffer[start] == '"') openString = discarded + start;
+                lastContentLine = line;
+                position = start + 1;
+                continue;
+            }
+            position = start + length;
+            tokenLine = line;
+            line += acceptedNewlines;
+            lastContentLine = line;
+            return type;
+        }
+    }
+
+    // Numbers lines from the given one, for input that is a slice of a
+    // larger source.
+    void startLine(int line) {
+        this.line = line;
+        this.lastContentLine = line;
+    }
+
+    // Bounds of the lexeme scanType() last matched, as offsets into the input.
+    int tokenStart() {
+        return discarded + start;
+    }
+
+    int tokenEnd() {
+        return discarded + position;
+    }
+
+    int tokenLine() {
+        return tokenLine;
+    }
+
+    // Whether more input could have changed the last token, e.g. an open
+    // string or an identifier touching the end.
+    boolean truncated() {
+        return truncated;
+    }
+
+    int openString() {
+        return openString;
+    }
+
+    private Token eof() {
+        return new Token(TokenType.EOF, "", "", Math.max(1, lastContentLine + 1));
+    }
+
+    private Token fixed(TokenType type, String lexeme) {
+        return new Token(type, lexeme, lexeme, line);
+    }
+
+    private Token number() {
+        while (available(1) && isDigit(buffer[position])) {
+            position++;
+        }
+        // A '.' is only part of the number when a digit follows it.
+        if (available(2) && buffer[position] == '.' && isDigit(buffer[position + 1])) {
+            position++;
+            while (available(1) && isDigit(buffer[position])) {
+                position++;
+            }
+        }
+        String lexeme = lexeme();
+        return new Token(TokenType.NUMBER, lexeme, Double.parseDouble(lexeme), line);
+    }
+
+    private Token identifier() {
+        while (available(1) && (isAlpha(buffer[position]) || isDigit(buffer[position]))) {
+            position++;
+        }
+        String keyword = keyword();
+        if (keyword != null) {
+            return new Token(keywordType(keyword), keyword, keyword, line);
+        }
+        return new Token(Symbol.intern(buffer, start, position - start), line);
+    }
+
+    // Returns null for a string that never closes. Its quote is skipped
+    // and scanning resumes right after it, as with the tables.
+    private Token string() {
+        int startLine = line;
+        while (available(1) && buffer[position] != '"') {
+            if (buffer[position] == '\n') line++;
+            position++;
+        }
+        if (!available(1)) {
+            if (openString < 0) openString = discarded + start;
+            line = startLine;
+            position = start + 1;
+            return null;
+        }
+        position++;
+        lastContentLine = line;
+        String lexeme = lexeme();
+        return new Token(TokenType.STRING, lexeme, lexeme.substring(1, lexeme.length() - 1), startLine);
+    }
+
+    private String lexeme() {
+        return new String(buffer, start, position - start);
+    }
+
+    // Returns the shared keyword string when the current lexeme is one, so
+    // keywords never allocate.
+    private String keyword() {
+        int length = position - start;
+        String candidate = switch (buffer[start]) {
+            case 'a' -> "and";
+            case 'e' -> "else";
+            case 'f' -> length < 2 ? null : switch (buffer[start + 1]) {
+                case 'a' -> "false";
+                case 'o' -> "for";
+                case 'u' -> "fun";
+                default -> null;
+            };
+            case 'i' -> "if";
+            case 'n' -> "nil";
+            case 'o' -> "or";
+            case 'p' -> "print";
+            case 'r' -> "return";
+            case 't' -> "true";
+            case 'v' -> "var";
+            case 'w' -> "while";
+            default -> null;
+        };
+        if (candidate == null || candidate.length() != length) return null;
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != candidate.charAt(i)) return null;
+        }
+        return candidate;
+    }
+
+    private static TokenType keywordType(String keyword) {
+        return switch (keyword) {
+            case "and" -> TokenType.AND;
+            case "else" -> TokenType.ELSE;
+            case "false" -> TokenType.FALSE;
+            case "for" -> TokenType.FOR;
+            case "fun" -> TokenType.FUN;
+            case "if" -> TokenType.IF;
+            case "nil" -> TokenType.NIL;
+            case "or" -> TokenType.OR;
+            case "print" -> TokenType.PRINT;
+            case "return" -> TokenType.RETURN;
+            case "true" -> TokenType.TRUE;
+            case "var" -> TokenType.VAR;
+            default -> TokenType.WHILE;
+        };
+    }
+
+    private boolean match(char expected) {
+        if (!available(1) || buffer[position] != expected) return false;
+        position++;
+        return true;
+    }
+
+    // Makes sure count characters from position on are in the window. The
+    // current lexeme is moved to the front before refilling so it stays
+    // contiguous; the window only grows for lexemes longer than itself.
+    // At least two chars are left free, so a decoder can always store a
+    // surrogate pair and every read makes progress.
+    private boolean available(int count) {
+        while (limit - position < count) {
+            if (exhausted) return false;
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                discarded += start;
+                limit -= start;
+                position -= start;
+                start = 0;
+            }
+            if (buffer.length - limit < 2) {
+                char[] grown = new char[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, limit);
+                buffer = grown;
+            }
+            CharBuffer target = CharBuffer.wrap(buffer, limit, buffer.length - limit);
+            try {
+                int read = input.read(target);
+                if (read < 0) {
+                    exhausted = true;
+                } else {
+                    limit += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAlpha(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+    }
+
+    private static class Text implements Readable {
+        private final String text;
+        private int offset;
+
+        Text(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(CharBuffer target) {
+            if (offset == text.length()) return -1;
+            int count = Math.min(target.remaining(), text.length() - offset);
+            text.getChars(offset, offset + count, target.array(), target.arrayOffset() + target.position());
+            target.position(target.position() + count);
+            offset += count;
+            return count;
+        }
+    }
+
+    private static class Decoding implements Readable {
+        private final ByteBuffer bytes;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private boolean flushed;
+
+        Decoding(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read(CharBuffer target) {
+            if (flushed) return -1;
+            int before = target.position();
+            CoderResult result = decoder.decode(bytes, target, true);
+            if (!bytes.hasRemaining() && result.isUnderflow()) {
+                decoder.flush(target);
+                flushed = true;
+            }
+            int read = target.position() - before;
+            return read == 0 && flushed ? -1 : read;
+        }
+    }
+}
@@ -3,21 +3,33 @@ package com.thecout.lox;
 
 public enum TokenType {
     // Single-character tokens.
-    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE,
-    COMMA, DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR,
+    LEFT_PAREN("("), RIGHT_PAREN(")"), LEFT_BRACE("{"), RIGHT_BRACE("}"),
+    COMMA(","), DOT("."), MINUS("-"), PLUS("+"), SEMICOLON(";"), SLASH("/"), STAR("*"),
 
     // One or two character tokens.
-    BANG, BANG_EQUAL,
-    EQUAL, EQUAL_EQUAL,
-    GREATER, GREATER_EQUAL,
-    LESS, LESS_EQUAL,
+    BANG("!"), BANG_EQUAL("!="),
+    EQUAL("="), EQUAL_EQUAL("=="),
+    GREATER(">"), GREATER_EQUAL(">="),
+    LESS("<"), LESS_EQUAL("<="),
 
     // Literals.
     IDENTIFIER, STRING, NUMBER,
 
     // Keywords.
-    AND, ELSE, FALSE, FUN, FOR, IF, NIL, OR,
-    PRINT, RETURN, TRUE, VAR, WHILE,
+    AND("and"), ELSE("else"), FALSE("false"), FUN("fun"), FOR("for"), IF("if"), NIL("nil"), OR("or"),
+    PRINT("print"), RETURN("return"), TRUE("true"), VAR("var"), WHILE("while"),
 
-    EOF, COMMENT
-}
\ No newline at end of file
+    EOF, COMMENT;
+
+    // Fixed spelling of punctuation and keywords, null for the rest. The
+    // lexer tables are generated from these.
+    public final String lexeme;
+
+    TokenType() {
+        this(null);
+    }
+
+    TokenType(String lexeme) {
+        this.lexeme = lexeme;
+    }
+}
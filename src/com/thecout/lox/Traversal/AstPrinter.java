@@ -75,6 +75,9 @@ public class AstPrinter implements ExprVisitor<String>, StmtVisitor<String> {
 
     @Override
     public String visitIfStmt(If stmt) {
+	    if (stmt.elseBranch == null) {
+		    return "(if %s %s)".formatted(stmt.condition.print(), stmt.thenBranch.print());
+	    }
 	    return "(if %s %s %s)".formatted(stmt.condition.print(), stmt.thenBranch.print(), stmt.elseBranch.print());
     }
 
@@ -85,6 +88,9 @@ public class AstPrinter implements ExprVisitor<String>, StmtVisitor<String> {
 
     @Override
     public String visitReturnStmt(Return stmt) {
+	    if (stmt.value == null) {
+		    return "(return)";
+	    }
 	    return "(return %s)".formatted(stmt.value.print());
     }
 
@@ -1,112 +1,422 @@
 package com.thecout.lox.Traversal;
 
 
+import com.thecout.lox.Engine;
+import com.thecout.lox.Jit.FunctionProfile;
+import com.thecout.lox.Jit.JvmCompiler;
+import com.thecout.lox.Jit.TieredCompilation;
 import com.thecout.lox.Parser.Expr.*;
 import com.thecout.lox.Parser.Stmts.*;
 import com.thecout.lox.Token;
 import com.thecout.lox.TokenType;
 import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LimitExceeded;
 import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
 import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
-import com.thecout.lox.Traversal.InterpreterUtils.LoxReturn;
+import com.thecout.lox.Traversal.InterpreterUtils.MemoCache;
+import com.thecout.lox.Traversal.InterpreterUtils.Natives;
+import com.thecout.lox.Traversal.InterpreterUtils.OutputSink;
 import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+import com.thecout.lox.Traversal.InterpreterUtils.TailCall;
+import com.thecout.lox.Traversal.Nodes.CallNode;
+import com.thecout.lox.Traversal.Nodes.NodeBuilder;
+import com.thecout.lox.Traversal.Nodes.RootNode;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
+public class Interpreter implements Engine, ExprVisitor<Object>,
+	StmtVisitor<Object> {
+
+	/**
+	 * Result of executing a statement that completed normally. Any other
+	 * result means a return statement ran and is the value it returned, or
+	 * a TailCall, so a return unwinds by being passed up through the
+	 * enclosing statements rather than by throwing.
+	 */
+	public static final Object NORMAL = new Object();
+	// Steps between two checks of the clock while a time limit is set.
+	private static final int CHECK_INTERVAL = 1 << 14;
+
+	public final Environment globals = new Environment(Natives.GLOBALS);
+	private Environment environment = globals;
+	private JvmCompiler jit;
+	private TieredCompilation tiering;
+	// Profile of the function currently being interpreted, for back-edge counting.
+	private FunctionProfile profile;
+	private boolean numericFastPath;
+	private Map<Expr, RootNode> specializedNodes;
+	private int memoCapacity;
+	// Caches of the pure global functions the current program declared.
+	private final Map<Function, MemoCache> memoCaches = new LinkedHashMap<>();
+	private final List<LoxFunction> memoized = new ArrayList<>();
+	private OutputSink output = OutputSink.stdout();
+	// Reports the runtime error that ended a script.
+	private Consumer<RuntimeError> errorHandler = RuntimeError::printStackTrace;
+	// Loop back-edges and function entries only count fuel down; the limits
+	// are checked once it runs out.
+	private long stepLimit;
+	private long timeLimit;
+	private long deadline;
+	private long granted;
+	private int fuel;
+
+
+	/**
+	 * Compiles numeric functions to JVM bytecode when they are declared. Pass
+	 * null to keep every function in the tree-walking interpreter.
+	 */
+	public void setJit(JvmCompiler jit) {
+		this.jit = jit;
+	}
 
-public class Interpreter implements ExprVisitor<Object>,
-	StmtVisitor<Void> {
+	/**
+	 * Starts every function in the interpreter and promotes it once its call
+	 * and loop counters cross the tiering threshold.
+	 */
+	public void setTiering(TieredCompilation tiering) {
+		this.tiering = tiering;
+	}
 
-	public final Environment globals = new Environment();
-	private Environment environment = globals;
+	/**
+	 * Evaluates arithmetic subtrees and loop/branch conditions on primitive
+	 * doubles and booleans and keeps numeric locals unboxed in their slots,
+	 * so only values that escape into generic code get boxed.
+	 */
+	public void setNumericFastPath(boolean numericFastPath) {
+		this.numericFastPath = numericFastPath;
+	}
 
+	/**
+	 * Evaluates expressions through self-specializing node trees built on first
+	 * use instead of visiting the Expr classes directly.
+	 */
+	public void setSelfSpecializing(boolean selfSpecializing) {
+		specializedNodes = selfSpecializing ? new IdentityHashMap<>() : null;
+	}
 
-	public Interpreter() {
-		globals.define("clock", new LoxCallable() {
-			@Override
-			public int arity() {
-				return 0;
-			}
+	/**
+	 * Answers calls to pure global functions from a cache of up to capacity
+	 * results per function. Zero turns memoization off.
+	 */
+	public void setMemoization(int capacity) {
+		this.memoCapacity = capacity;
+	}
 
-			@Override
-			public Object call(Interpreter interpreter,
-			                   List<Object> arguments) {
-				return (double) System.currentTimeMillis() / 1000.0;
-			}
+	public MemoCache memoCache(String name) {
+		for (Map.Entry<Function, MemoCache> entry : memoCaches.entrySet()) {
+			if (entry.getKey().name.lexeme.equals(name)) return entry.getValue();
+		}
+		return null;
+	}
 
-			@Override
-			public String toString() {
-				return "<native fn>";
-			}
-		});
+	/**
+	 * Sends the output of print statements to the given sink instead of a
+	 * buffered System.out, so concurrent scripts do not share a stream. The
+	 * sink is flushed whenever a program ends.
+	 */
+	public void setOutput(OutputSink output) {
+		this.output = output;
+	}
+
+	/**
+	 * Hands the runtime error that ends a script to the given handler instead
+	 * of printing its stack trace. A handler may rethrow it to the caller.
+	 */
+	public void setErrorHandler(Consumer<RuntimeError> errorHandler) {
+		this.errorHandler = errorHandler;
+	}
+
+	/**
+	 * Aborts a script with a LimitExceeded once it has taken this many steps,
+	 * counting loop iterations and function calls. Zero means no limit.
+	 * Functions run without the JIT while a limit is set.
+	 */
+	public void setStepLimit(long steps) {
+		this.stepLimit = steps;
+		startBudget();
+	}
+
+	/**
+	 * Aborts a script with a LimitExceeded once it has run for longer than
+	 * the given time. Null means no limit.
+	 */
+	public void setTimeLimit(Duration limit) {
+		this.timeLimit = limit == null ? 0 : limit.toNanos();
+		startBudget();
+	}
+
+	private boolean limited() {
+		return stepLimit > 0 || timeLimit > 0;
+	}
+
+	private void startBudget() {
+		granted = 0;
+		fuel = 0;
+		deadline = System.nanoTime() + timeLimit;
+	}
+
+	/**
+	 * Counts one step at a loop back-edge or function entry on the given line.
+	 */
+	public void step(int line) {
+		if (--fuel < 0) {
+			refuel(line);
+		}
 	}
 
+	private void refuel(int line) {
+		if (stepLimit > 0 && granted >= stepLimit) {
+			throw new LimitExceeded(line, "Step limit of " + stepLimit + " exceeded.");
+		}
+		if (timeLimit > 0 && System.nanoTime() - deadline > 0) {
+			throw new LimitExceeded(line, "Time limit exceeded.");
+		}
+		long grant = timeLimit > 0 ? CHECK_INTERVAL : Integer.MAX_VALUE;
+		if (stepLimit > 0) {
+			grant = Math.min(grant, stepLimit - granted);
+		}
+		granted += grant;
+		fuel = (int) grant - 1;
+	}
+
+	public RootNode specializedNode(Expr expr) {
+		return specializedNodes != null ? specializedNodes.get(expr) : null;
+	}
+
+	public Environment currentEnvironment() {
+		return environment;
+	}
+
+	public FunctionProfile swapProfile(FunctionProfile profile) {
+		FunctionProfile previous = this.profile;
+		this.profile = profile;
+		return previous;
+	}
+
+	@Override
 	public void interpret(List<Stmt> statements) {
+		interpretPrepared(prepare(statements));
+	}
+
+	/**
+	 * Runs the static passes, which write their results into the tree. The
+	 * prepared statements are not changed by running them, so they can be
+	 * passed to interpretPrepared() any number of times, by any number of
+	 * interpreters at once.
+	 */
+	public static List<Stmt> prepare(List<Stmt> statements) {
+		statements = new Optimizer().optimize(statements);
+		new Resolver().resolve(statements);
+		new PurityAnalysis().analyze(statements);
+		return Collections.unmodifiableList(statements);
+	}
+
+	/**
+	 * Runs prepared statements. Runtime errors end the script and go to the
+	 * error handler; a LimitExceeded is thrown on to the caller.
+	 */
+	public void interpretPrepared(List<Stmt> statements) {
+		startBudget();
+		// Functions of an earlier program may read globals this one rebinds.
+		memoized.forEach(function -> function.setMemo(null));
+		memoized.clear();
+		memoCaches.clear();
 		try {
 			for (Stmt statement : statements) {
-				execute(statement);
+				// A return at the top level ends the script.
+				if (execute(statement) != NORMAL) break;
 			}
+		} catch (LimitExceeded limit) {
+			throw limit;
 		} catch (RuntimeError error) {
-			error.printStackTrace();
+			// What the script printed before it failed comes first.
+			output.flush();
+			errorHandler.accept(error);
+		} finally {
+			output.flush();
 		}
 	}
 
-	public void executeBlock(List<Stmt> statements,
-	                         Environment environment) {
+	public Object executeBlock(List<Stmt> statements,
+	                           Environment environment) {
 		Environment previous = this.environment;
 		try {
 			this.environment = environment;
 
-			for (Stmt statement : statements) {
+			// Indexed, so a loop body run on every iteration does not depend
+			// on escape analysis to drop an iterator.
+			for (int i = 0; i < statements.size(); i++) {
+				Stmt statement = statements.get(i);
 				if (statement != null) {
-					execute(statement);
+					Object result = execute(statement);
+					if (result != NORMAL) return result;
 				}
 			}
-		} catch (LoxReturn lr) {
-			throw lr;
-		}
-		finally {
+			return NORMAL;
+		} finally {
 			this.environment = previous;
 		}
 	}
 
 	private Object evaluate(Expr expr) {
+		if (specializedNodes != null) {
+			return specialize(expr).execute(this);
+		}
 		return expr.accept(this);
 	}
 
-	public void execute(Stmt stmt) {
-		stmt.accept(this);
+	private RootNode specialize(Expr expr) {
+		RootNode node = specializedNodes.get(expr);
+		if (node == null) {
+			node = new NodeBuilder().build(expr);
+			specializedNodes.put(expr, node);
+		}
+		return node;
+	}
+
+	public Object execute(Stmt stmt) {
+		return stmt.accept(this);
+	}
+
+	// Arithmetic operators other than '+' always produce a number or fail, so
+	// the shape of the tree alone decides whether it can be evaluated unboxed.
+	static boolean isNumeric(Expr expr) {
+		if (expr instanceof Literal) {
+			return ((Literal) expr).value instanceof Double;
+		}
+		if (expr instanceof Grouping) {
+			return isNumeric(((Grouping) expr).expression);
+		}
+		if (expr instanceof Binary) {
+			Binary binary = (Binary) expr;
+			return switch (binary.operator.type) {
+				// Either operand being a number rules out string concatenation.
+				case PLUS -> isNumeric(binary.left) || isNumeric(binary.right);
+				case MINUS, STAR, SLASH -> true;
+				default -> false;
+			};
+		}
+		if (expr instanceof Unary) {
+			return ((Unary) expr).operator.type == TokenType.MINUS;
+		}
+		return false;
+	}
+
+	private double evaluateDouble(Expr expr) {
+		if (expr instanceof Binary) {
+			Binary binary = (Binary) expr;
+			switch (binary.operator.type) {
+				case PLUS:
+					return evaluateDouble(binary.left) + evaluateDouble(binary.right);
+				case MINUS:
+					return evaluateDouble(binary.left) - evaluateDouble(binary.right);
+				case STAR:
+					return evaluateDouble(binary.left) * evaluateDouble(binary.right);
+				case SLASH:
+					return evaluateDouble(binary.left) / evaluateDouble(binary.right);
+				default:
+					break;
+			}
+		} else if (expr instanceof Variable) {
+			Variable variable = (Variable) expr;
+			if (variable.depth >= 0) {
+				return environment.getDoubleAt(variable.depth, variable.slot);
+			}
+		} else if (expr instanceof Literal && ((Literal) expr).value instanceof Double) {
+			return (double) ((Literal) expr).value;
+		} else if (expr instanceof Grouping) {
+			return evaluateDouble(((Grouping) expr).expression);
+		} else if (expr instanceof Unary && ((Unary) expr).operator.type == TokenType.MINUS) {
+			return -evaluateDouble(((Unary) expr).right);
+		} else if (expr instanceof Assign && isNumeric(((Assign) expr).value) && ((Assign) expr).depth >= 0) {
+			return assignDouble((Assign) expr);
+		}
+		return (double) evaluate(expr);
+	}
+
+	private boolean evaluateCondition(Expr expr) {
+		if (expr instanceof Binary) {
+			Binary binary = (Binary) expr;
+			switch (binary.operator.type) {
+				case GREATER:
+					return evaluateDouble(binary.left) > evaluateDouble(binary.right);
+				case GREATER_EQUAL:
+					return evaluateDouble(binary.left) >= evaluateDouble(binary.right);
+				case LESS:
+					return evaluateDouble(binary.left) < evaluateDouble(binary.right);
+				case LESS_EQUAL:
+					return evaluateDouble(binary.left) <= evaluateDouble(binary.right);
+				default:
+					break;
+			}
+		} else if (expr instanceof Unary && ((Unary) expr).operator.type == TokenType.BANG) {
+			return !evaluateCondition(((Unary) expr).right);
+		} else if (expr instanceof Grouping) {
+			return evaluateCondition(((Grouping) expr).expression);
+		}
+		return (boolean) evaluate(expr);
+	}
+
+	private double assignDouble(Assign expr) {
+		double value = evaluateDouble(expr.value);
+		environment.assignDoubleAt(expr.depth, expr.slot, value);
+		return value;
 	}
 
 
 	@Override
 	public Object visitAssignExpr(Assign expr) {
+		if (numericFastPath && expr.depth >= 0 && isNumeric(expr.value)) {
+			return assignDouble(expr);
+		}
 		Object r = evaluate(expr.value);
-		this.environment.assign(expr.name, r);
+		if (expr.depth < 0) {
+			globals.assign(expr.name, r);
+		} else {
+			environment.assignAt(expr.depth, expr.slot, r);
+		}
 		return r;
 	}
 
 	@Override
 	public Object visitBinaryExpr(Binary expr) {
-		Object left = this.evaluate(expr.left);
-		Object right = this.evaluate(expr.right);
-		if (left instanceof Literal) {
-			left = ((Literal) left).value;
-		}
-		if (right instanceof Literal) {
-			right = ((Literal) right).value;
+		if (numericFastPath) {
+			switch (expr.operator.type) {
+				case PLUS:
+					if (isNumeric(expr)) {
+						return evaluateDouble(expr);
+					}
+					break;
+				case MINUS, STAR, SLASH:
+					return evaluateDouble(expr);
+				case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL:
+					return evaluateCondition(expr);
+				default:
+					break;
+			}
 		}
-		return switch (expr.operator.type) {
+		return applyBinary(expr.operator, evaluate(expr.left), evaluate(expr.right));
+	}
+
+	public static Object applyBinary(Token operator, Object left, Object right) {
+		return switch (operator.type) {
 			case EQUAL_EQUAL -> (boolean) left == (boolean) right;
 			case BANG_EQUAL -> (boolean) left != (boolean) right;
 			case GREATER -> (double) left > (double) right;
 			case GREATER_EQUAL -> (double) left >= (double) right;
 			case LESS -> (double) left < (double) right;
 			case LESS_EQUAL -> (double) left <= (double) right;
-			case PLUS -> (double) left + (double) right;
+			case PLUS -> left instanceof String && right instanceof String
+					? (String) left + right
+					: (Object) ((double) left + (double) right);
 			case MINUS -> (double) left - (double) right;
 			case STAR -> (double) left * (double) right;
 			case SLASH -> (double) left / (double) right;
@@ -117,10 +427,18 @@ public class Interpreter implements ExprVisitor<Object>,
 	@Override
 	public Object visitCallExpr(Call expr) {
 		Object f = evaluate(expr.callee);
-		LoxFunction function = (LoxFunction) f;
-		List<Object> arffewergebmtrsklg = new ArrayList<>();
-		arffewergebmtrsklg.addAll(expr.arguments);
-		return function.call(this, arffewergebmtrsklg);
+		LoxCallable function = (LoxCallable) f;
+		return function.call(this, evaluateArguments(expr));
+	}
+
+	// Pre-sized, so a call allocates nothing beyond the argument array the
+	// callee binds its parameters from.
+	private Object[] evaluateArguments(Call expr) {
+		Object[] arguments = new Object[expr.arguments.size()];
+		for (int i = 0; i < arguments.length; i++) {
+			arguments[i] = evaluate(expr.arguments.get(i));
+		}
+		return arguments;
 	}
 
 	@Override
@@ -135,17 +453,19 @@ public class Interpreter implements ExprVisitor<Object>,
 
 	@Override
 	public Object visitLogicalExpr(Logical expr) {
-		Object right = this.evaluate(expr.right);
-		Object left = this.evaluate(expr.left);
+		boolean left = (boolean) evaluate(expr.left);
 		return switch (expr.operator.type) {
-			case OR -> (boolean) right || (boolean) left;
-			case AND -> (boolean) right && (boolean) left;
+			case OR -> left || (boolean) evaluate(expr.right);
+			case AND -> left && (boolean) evaluate(expr.right);
 			default -> null;
 		};
 	}
 
 	@Override
 	public Object visitUnaryExpr(Unary expr) {
+		if (numericFastPath) {
+			return expr.operator.type == TokenType.MINUS ? evaluateDouble(expr) : evaluateCondition(expr);
+		}
 		Object right = this.evaluate(expr.right);
 		return switch (expr.operator.type) {
 			case MINUS -> -(double) right;
@@ -156,68 +476,134 @@ public class Interpreter implements ExprVisitor<Object>,
 
 	@Override
 	public Object visitVariableExpr(Variable expr) {
-		return  environment.get(expr.name);
+		if (expr.depth < 0) {
+			return globals.get(expr.name);
+		}
+		return environment.getAt(expr.depth, expr.slot);
 	}
 
 	@Override
-	public Void visitBlockStmt(Block stmt) {
-		executeBlock(stmt.statements, new Environment(environment));
-		return null;
+	public Object visitBlockStmt(Block stmt) {
+		return executeBlock(stmt.statements, stmt.frameSize == 0 ? environment : new Environment(environment, stmt.frameSize));
 	}
 
 	@Override
-	public Void visitExpressionStmt(Expression stmt) {
+	public Object visitExpressionStmt(Expression stmt) {
+		if (numericFastPath && stmt.expression instanceof Assign) {
+			Assign assign = (Assign) stmt.expression;
+			if (assign.depth >= 0 && isNumeric(assign.value)) {
+				assignDouble(assign);
+				return NORMAL;
+			}
+		}
 		evaluate(stmt.expression);
-		return null;
+		return NORMAL;
 	}
 
 	@Override
-	public Void visitFunctionStmt(Function stmt) {
-		LoxFunction whatever = new LoxFunction(stmt, environment);
-		environment.define(stmt.name.lexeme, whatever);
-		return null;
+	public Object visitFunctionStmt(Function stmt) {
+		LoxFunction function = new LoxFunction(stmt, environment);
+		// Compiled code has no back-edge checks, so it cannot run under a limit.
+		if (jit != null && !limited()) {
+			function.setCompiled(jit.compile(stmt));
+		}
+		if (tiering != null && !limited()) {
+			function.setProfile(tiering.profile(stmt));
+		}
+		if (memoCapacity > 0 && stmt.pure && stmt.slot < 0) {
+			function.setMemo(memoCaches.computeIfAbsent(stmt, k -> new MemoCache(memoCapacity)));
+			memoized.add(function);
+		}
+		if (stmt.slot < 0) {
+			globals.define(stmt.name.symbol, function);
+		} else {
+			environment.define(stmt.slot, function);
+		}
+		return NORMAL;
 	}
 
 	@Override
-	public Void visitIfStmt(If stmt) {
-		if ((boolean) evaluate(stmt.condition)) {
-			execute(stmt.thenBranch);
+	public Object visitIfStmt(If stmt) {
+		boolean condition = numericFastPath ? evaluateCondition(stmt.condition) : (boolean) evaluate(stmt.condition);
+		if (condition) {
+			return execute(stmt.thenBranch);
 		} else if (stmt.elseBranch != null) {
-			execute(stmt.elseBranch);
+			return execute(stmt.elseBranch);
 		}
-		return null;
+		return NORMAL;
 	}
 
 	@Override
-	public Void visitPrintStmt(Print stmt) {
+	public Object visitPrintStmt(Print stmt) {
 		Object fu = evaluate(stmt.expression);
-		System.out.println(fu);
-		return null;
+		output.println(fu);
+		return NORMAL;
 	}
 
 	@Override
-	public Void visitReturnStmt(Return stmt) {
+	public Object visitReturnStmt(Return stmt) {
+		if (stmt.tailCall) {
+			Call call = (Call) stmt.value;
+			if (specializedNodes != null) {
+				return ((CallNode) specialize(call).child()).executeTail(this);
+			}
+			LoxCallable function = (LoxCallable) evaluate(call.callee);
+			return new TailCall(function, evaluateArguments(call));
+		}
 		Object val = null;
 		if (stmt.value != null) {
 			val = evaluate(stmt.value);
 		}
-		throw new LoxReturn(val);
+		return val;
 	}
 
 	@Override
-	public Void visitVarStmt(Var stmt) {
-		this.environment.define(stmt.name.lexeme, evaluate(stmt.initializer));
-		return null;
+	public Object visitVarStmt(Var stmt) {
+		if (numericFastPath && stmt.slot >= 0 && stmt.initializer != null && isNumeric(stmt.initializer)) {
+			environment.defineDouble(stmt.slot, evaluateDouble(stmt.initializer));
+			return NORMAL;
+		}
+		Object value = stmt.initializer != null ? evaluate(stmt.initializer) : null;
+		if (stmt.slot < 0) {
+			globals.define(stmt.name.symbol, value);
+		} else {
+			environment.define(stmt.slot, value);
+		}
+		return NORMAL;
 	}
 
 	@Override
-	public Void visitWhileStmt(While stmt) {
+	public Object visitWhileStmt(While stmt) {
+		Environment loop = stmt.reuseEnvironment ? new Environment(environment, ((Block) stmt.body).frameSize) : null;
+		if (numericFastPath) {
+			while (evaluateCondition(stmt.condition)) {
+				Object result = executeBody(stmt, loop);
+				if (result != NORMAL) return result;
+				if (profile != null) {
+					profile.backEdge();
+				}
+				step(stmt.keyword.line);
+			}
+			return NORMAL;
+		}
 		Object cond = evaluate(stmt.condition);
 		while ((boolean) cond) {
-			execute(stmt.body);
+			Object result = executeBody(stmt, loop);
+			if (result != NORMAL) return result;
+			if (profile != null) {
+				profile.backEdge();
+			}
+			step(stmt.keyword.line);
 			cond = evaluate(stmt.condition);
 		}
-		return null;
+		return NORMAL;
+	}
+
+	private Object executeBody(While stmt, Environment loop) {
+		if (loop != null) {
+			return executeBlock(((Block) stmt.body).statements, loop);
+		}
+		return execute(stmt.body);
 	}
 
 }
\ No newline at end of file
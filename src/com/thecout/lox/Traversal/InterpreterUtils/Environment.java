@@ -1,32 +1,91 @@
 package com.thecout.lox.Traversal.InterpreterUtils;
 
+import com.thecout.lox.Symbol;
 import com.thecout.lox.Token;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Environment {
+    private static final Object[] NO_SLOTS = new Object[0];
+    // Marks a slot whose value lives unboxed in the numbers array.
+    private static final Object UNBOXED = new Object();
+
     final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+    // Globals are addressed by name, locals by the slot the Resolver assigned.
+    private Map<Symbol, Object> values;
+    private final Object[] slots;
+    private double[] numbers;
+    // Set on a read-only layer that many interpreters put under their globals.
+    private boolean shared;
 
     public Environment() {
         enclosing = null;
+        values = new HashMap<>();
+        slots = NO_SLOTS;
     }
 
     public Environment(Environment enclosing) {
         this.enclosing = enclosing;
+        values = new HashMap<>();
+        slots = NO_SLOTS;
     }
 
-    public void define(String name, Object value) {
+    public Environment(Environment enclosing, int size) {
+        this.enclosing = enclosing;
+        values = null;
+        slots = size == 0 ? NO_SLOTS : new Object[size];
+    }
+
+    /**
+     * Call frame whose first slots are the parameters. When the frame holds
+     * nothing but the parameters the arguments array itself becomes the
+     * frame, so the caller must not touch it afterwards.
+     */
+    public Environment(Environment enclosing, int size, Object[] arguments) {
+        this.enclosing = enclosing;
+        values = null;
+        slots = arguments.length == size ? arguments : Arrays.copyOf(arguments, size);
+    }
+
+    /**
+     * Read-only globals that any number of interpreters, on any threads, can
+     * use as the enclosing environment of their own globals.
+     */
+    public static Environment shared(Map<String, ?> values) {
+        Map<Symbol, Object> symbols = new HashMap<>();
+        values.forEach((name, value) -> symbols.put(Symbol.intern(name), value));
+        Environment environment = new Environment(null, 0);
+        environment.values = Map.copyOf(symbols);
+        environment.shared = true;
+        return environment;
+    }
+
+    public void define(Symbol name, Object value) {
         values.put(name, value);
     }
 
+    public void define(String name, Object value) {
+        define(Symbol.intern(name), value);
+    }
+
+    public void define(int slot, Object value) {
+        slots[slot] = value;
+    }
+
     public void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
+        if (values != null && values.containsKey(name.symbol)) {
+            values.put(name.symbol, value);
             return;
         }
         if (enclosing != null) {
+            // Assigning a shared global shadows it instead of changing it
+            // for every other interpreter.
+            if (enclosing.shared && values != null && enclosing.values.containsKey(name.symbol)) {
+                values.put(name.symbol, value);
+                return;
+            }
             enclosing.assign(name, value);
             return;
         }
@@ -35,8 +94,9 @@ public class Environment {
     }
 
     public Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+        if (values != null) {
+            Object value = values.get(name.symbol);
+            if (value != null || values.containsKey(name.symbol)) return value;
         }
         if (enclosing != null) return enclosing.get(name);
 
@@ -44,9 +104,54 @@ public class Environment {
                 "Undefined variable '" + name.lexeme + "'.");
     }
 
+    public void defineDouble(int slot, double value) {
+        if (numbers == null) {
+            numbers = new double[slots.length];
+        }
+        numbers[slot] = value;
+        slots[slot] = UNBOXED;
+    }
+
+    public Object getAt(int depth, int slot) {
+        Environment environment = ancestor(depth);
+        Object value = environment.slots[slot];
+        return value == UNBOXED ? (Object) environment.numbers[slot] : value;
+    }
+
+    public double getDoubleAt(int depth, int slot) {
+        Environment environment = ancestor(depth);
+        Object value = environment.slots[slot];
+        return value == UNBOXED ? environment.numbers[slot] : (double) value;
+    }
+
+    public void assignAt(int depth, int slot, Object value) {
+        ancestor(depth).slots[slot] = value;
+    }
+
+    public void assignDoubleAt(int depth, int slot, double value) {
+        ancestor(depth).defineDouble(slot, value);
+    }
+
+    private Environment ancestor(int depth) {
+        Environment environment = this;
+        for (int i = 0; i < depth; i++) {
+            environment = environment.enclosing;
+        }
+        return environment;
+    }
+
     @Override
     public String toString() {
-        String result = values.toString();
+        String result;
+        if (values != null) {
+            result = values.toString();
+        } else {
+            Object[] boxed = slots.clone();
+            for (int i = 0; i < boxed.length; i++) {
+                if (boxed[i] == UNBOXED) boxed[i] = numbers[i];
+            }
+            result = Arrays.toString(boxed);
+        }
         if (enclosing != null) {
             result += " -> " + enclosing;
         }
@@ -0,0 +1,12 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+/**
+ * Thrown when a script runs out of its step or time budget. Unlike other
+ * runtime errors it is not reported by the engine but reaches whoever
+ * started the script, so an aborted run cannot pass for a finished one.
+ */
+public class LimitExceeded extends RuntimeError {
+    public LimitExceeded(int line, String message) {
+        super(line, message);
+    }
+}
@@ -1,20 +1,39 @@
 package com.thecout.lox.Traversal.InterpreterUtils;
 
 
+import com.thecout.lox.Jit.CompiledFunction;
+import com.thecout.lox.Jit.FunctionProfile;
 import com.thecout.lox.Parser.Stmts.Function;
 import com.thecout.lox.Traversal.Interpreter;
 
-import java.util.List;
-
 public class LoxFunction implements LoxCallable {
     private final Function declaration;
     private final Environment closure;
+    private CompiledFunction compiled;
+    private FunctionProfile profile;
+    private MemoCache memo;
 
     public LoxFunction(Function declaration, Environment closure) {
         this.closure = closure;
         this.declaration = declaration;
     }
 
+    public void setCompiled(CompiledFunction compiled) {
+        this.compiled = compiled;
+    }
+
+    public void setProfile(FunctionProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Answers calls from the given cache, which is only sound for functions
+     * the PurityAnalysis marked pure. Pass null to stop memoizing.
+     */
+    public void setMemo(MemoCache memo) {
+        this.memo = memo;
+    }
+
     @Override
     public int arity() {
         return declaration.parameters.size();
@@ -27,18 +46,60 @@ public class LoxFunction implements LoxCallable {
 
     @Override
     public Object call(Interpreter interpreter,
-                       List<Object> arguments) {
-        Environment environment = new Environment(closure);
-        for (int i = 0; i < declaration.parameters.size(); i++) {
-            environment.define(declaration.parameters.get(i).lexeme,
-                    arguments.get(i));
+                       Object[] arguments) {
+        if (memo == null) {
+            return invoke(interpreter, arguments);
+        }
+        Object result = memo.lookup(arguments);
+        if (result == MemoCache.MISSING) {
+            // The body may reuse its arguments as the frame, the key may not.
+            result = invoke(interpreter, arguments.clone());
+            memo.store(arguments, result);
         }
+        return result;
+    }
+
+    private Object invoke(Interpreter interpreter, Object[] arguments) {
+        LoxFunction function = this;
+        Environment environment = null;
+        // Tail calls come back here instead of nesting: a self tail call
+        // runs as the next iteration, any other one as a trampoline.
+        for (;;) {
+            interpreter.step(function.declaration.name.line);
+            CompiledFunction code = function.profile != null ? function.profile.enter() : function.compiled;
+            if (code != null && code.accepts(arguments)) {
+                return code.invoke(arguments);
+            }
+            if (environment == null) {
+                environment = new Environment(function.closure, function.declaration.frameSize, arguments);
+            } else {
+                // Like a fresh frame: missing arguments bind nil and extra
+                // ones are dropped.
+                int parameters = function.declaration.parameters.size();
+                for (int i = 0; i < parameters; i++) {
+                    environment.define(i, i < arguments.length ? arguments[i] : null);
+                }
+            }
 
-        try {
-            interpreter.executeBlock(declaration.body, environment);
-        } catch (LoxReturn returnValue) {
-            return returnValue.value;
+            FunctionProfile caller = interpreter.swapProfile(function.profile);
+            Object result;
+            try {
+                result = interpreter.executeBlock(function.declaration.body, environment);
+            } finally {
+                interpreter.swapProfile(caller);
+            }
+            if (!(result instanceof TailCall)) {
+                return result == Interpreter.NORMAL ? null : result;
+            }
+            TailCall tailCall = (TailCall) result;
+            arguments = tailCall.arguments;
+            if (!(tailCall.callee instanceof LoxFunction)) {
+                return tailCall.callee.call(interpreter, arguments);
+            }
+            if (tailCall.callee != function || !function.declaration.reuseEnvironment) {
+                environment = null;
+            }
+            function = (LoxFunction) tailCall.callee;
         }
-        return null;
     }
-}
\ No newline at end of file
+}
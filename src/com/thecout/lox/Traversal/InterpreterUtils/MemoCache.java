@@ -0,0 +1,55 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of a pure function keyed by its argument values. Holds at most
+ * capacity entries and evicts the least recently used one beyond that.
+ */
+public class MemoCache {
+    // Returned by lookup() on a miss, since nil results are cached as null.
+    public static final Object MISSING = new Object();
+
+    private final Map<List<Object>, Object> results;
+    private long hits;
+    private long misses;
+
+    public MemoCache(int capacity) {
+        results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public Object lookup(Object[] arguments) {
+        Object result = results.getOrDefault(Arrays.asList(arguments), MISSING);
+        if (result == MISSING) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    // The arguments become part of the key and must not change afterwards.
+    public void store(Object[] arguments, Object result) {
+        results.put(Arrays.asList(arguments), result);
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public int size() {
+        return results.size();
+    }
+}
@@ -0,0 +1,35 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import com.thecout.lox.Traversal.Interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class Natives {
+    public static final LoxCallable CLOCK = new LoxCallable() {
+        @Override
+        public int arity() {
+            return 0;
+        }
+
+        @Override
+        public Object call(Interpreter interpreter,
+                           Object[] arguments) {
+            return (double) System.currentTimeMillis() / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn>";
+        }
+    };
+
+    // Built once and shared by every Interpreter as the layer below its globals.
+    public static final Environment GLOBALS = Environment.shared(all());
+
+    public static Map<String, LoxCallable> all() {
+        Map<String, LoxCallable> natives = new HashMap<>();
+        natives.put("clock", CLOCK);
+        return natives;
+    }
+}
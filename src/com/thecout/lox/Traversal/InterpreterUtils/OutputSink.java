@@ -0,0 +1,125 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Destination of print statements. Lines are encoded as UTF-8 into one
+ * reusable buffer that is written out once it holds threshold bytes, on
+ * flush(), or after every line in line-flushing mode. The Interpreter
+ * flushes it when a program ends.
+ */
+public class OutputSink {
+    public static final int DEFAULT_THRESHOLD = 8192;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    // Double.toString() switches to exponent notation from here on.
+    private static final double PLAIN_LIMIT = 1e7;
+
+    // Null means whatever System.out is at the time of the flush.
+    private final OutputStream out;
+    private final int threshold;
+    private final boolean lineFlushing;
+    private byte[] buffer;
+    private int count;
+
+    public OutputSink(OutputStream out) {
+        this(out, DEFAULT_THRESHOLD, false);
+    }
+
+    public OutputSink(OutputStream out, int threshold, boolean lineFlushing) {
+        this.out = out;
+        this.threshold = threshold;
+        this.lineFlushing = lineFlushing;
+        this.buffer = new byte[Math.max(threshold, 64) + 64];
+    }
+
+    /**
+     * Buffers into System.out as it is set when the output is flushed. On an
+     * interactive console every line is written out as soon as it is
+     * printed.
+     */
+    public static OutputSink stdout() {
+        return new OutputSink(null, DEFAULT_THRESHOLD, System.console() != null);
+    }
+
+    public void println(Object value) {
+        if (value instanceof Double) {
+            appendNumber((Double) value);
+        } else if (value instanceof String) {
+            append((String) value);
+        } else {
+            append(String.valueOf(value));
+        }
+        append(LINE_SEPARATOR);
+        if (lineFlushing || count >= threshold) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        OutputStream target = out != null ? out : System.out;
+        try {
+            target.write(buffer, 0, count);
+            target.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        count = 0;
+    }
+
+    // Integral values print as Double.toString() would, without building a
+    // String; anything else goes through it.
+    private void appendNumber(double value) {
+        long integral = (long) value;
+        if (integral != value || Math.abs(value) >= PLAIN_LIMIT || (value == 0 && 1 / value < 0)) {
+            append(Double.toString(value));
+            return;
+        }
+        ensureCapacity(22);
+        if (integral < 0) {
+            buffer[count++] = '-';
+            integral = -integral;
+        }
+        int start = count;
+        do {
+            buffer[count++] = (byte) ('0' + integral % 10);
+            integral /= 10;
+        } while (integral != 0);
+        for (int i = start, j = count - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+        buffer[count++] = '.';
+        buffer[count++] = '0';
+    }
+
+    private void append(String text) {
+        int length = text.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Only ASCII is copied char by char.
+                append(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer[count++] = (byte) c;
+        }
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + extra));
+        }
+    }
+}
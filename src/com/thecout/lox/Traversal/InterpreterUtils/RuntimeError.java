@@ -4,9 +4,21 @@ import com.thecout.lox.Token;
 
 public class RuntimeError extends RuntimeException {
     final Token token;
+    final int line;
 
     public RuntimeError(Token token, String message) {
         super(message);
         this.token = token;
+        this.line = token.line;
     }
-}
\ No newline at end of file
+
+    public RuntimeError(int line, String message) {
+        super(message);
+        this.token = null;
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,16 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+/**
+ * Completion of a function body that ended in a tail call. The callee has
+ * not been called yet: LoxFunction.call() makes the call in its own loop
+ * once the current body has returned, so tail calls do not grow the stack.
+ */
+public class TailCall {
+    final LoxCallable callee;
+    final Object[] arguments;
+
+    public TailCall(LoxCallable callee, Object[] arguments) {
+        this.callee = callee;
+        this.arguments = arguments;
+    }
+}
@@ -0,0 +1,187 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.Interpreter;
+
+/**
+ * Binary operators. The uninitialized node looks at its first operands and
+ * turns into a double specialization when both were numbers, otherwise into
+ * the generic node. A double node that later sees anything else falls back
+ * to the generic node for good.
+ */
+public abstract class BinaryNode extends ExprNode {
+    final Token operator;
+    ExprNode left;
+    ExprNode right;
+
+    BinaryNode(Token operator, ExprNode left, ExprNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    @Override
+    void replaceChild(ExprNode child, ExprNode replacement) {
+        if (left == child) left = replacement;
+        if (right == child) right = replacement;
+    }
+
+    static class Uninitialized extends BinaryNode {
+        Uninitialized(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            Object l = left.execute(interpreter);
+            Object r = right.execute(interpreter);
+            replace(specialize(l instanceof Double && r instanceof Double));
+            return Interpreter.applyBinary(operator, l, r);
+        }
+
+        private BinaryNode specialize(boolean numbers) {
+            if (!numbers) {
+                return new Generic(operator, left, right);
+            }
+            return switch (operator.type) {
+                case PLUS -> new DoubleAdd(operator, left, right);
+                case MINUS -> new DoubleSubtract(operator, left, right);
+                case STAR -> new DoubleMultiply(operator, left, right);
+                case SLASH -> new DoubleDivide(operator, left, right);
+                case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> new DoubleCompare(operator, left, right);
+                default -> new Generic(operator, left, right);
+            };
+        }
+    }
+
+    static class Generic extends BinaryNode {
+        Generic(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            return Interpreter.applyBinary(operator, left.execute(interpreter), right.execute(interpreter));
+        }
+    }
+
+    abstract static class DoubleArithmetic extends BinaryNode {
+        DoubleArithmetic(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        abstract double apply(double l, double r);
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            try {
+                return executeDouble(interpreter);
+            } catch (UnexpectedResultException e) {
+                return e.result;
+            }
+        }
+
+        @Override
+        public double executeDouble(Interpreter interpreter) throws UnexpectedResultException {
+            double l;
+            try {
+                l = left.executeDouble(interpreter);
+            } catch (UnexpectedResultException e) {
+                return deoptimize(e.result, right.execute(interpreter));
+            }
+            double r;
+            try {
+                r = right.executeDouble(interpreter);
+            } catch (UnexpectedResultException e) {
+                return deoptimize(l, e.result);
+            }
+            return apply(l, r);
+        }
+
+        private double deoptimize(Object l, Object r) throws UnexpectedResultException {
+            replace(new Generic(operator, left, right));
+            Object result = Interpreter.applyBinary(operator, l, r);
+            if (result instanceof Double) {
+                return (double) result;
+            }
+            throw new UnexpectedResultException(result);
+        }
+    }
+
+    static class DoubleAdd extends DoubleArithmetic {
+        DoubleAdd(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double apply(double l, double r) {
+            return l + r;
+        }
+    }
+
+    static class DoubleSubtract extends DoubleArithmetic {
+        DoubleSubtract(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double apply(double l, double r) {
+            return l - r;
+        }
+    }
+
+    static class DoubleMultiply extends DoubleArithmetic {
+        DoubleMultiply(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double apply(double l, double r) {
+            return l * r;
+        }
+    }
+
+    static class DoubleDivide extends DoubleArithmetic {
+        DoubleDivide(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double apply(double l, double r) {
+            return l / r;
+        }
+    }
+
+    static class DoubleCompare extends BinaryNode {
+        DoubleCompare(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            double l;
+            try {
+                l = left.executeDouble(interpreter);
+            } catch (UnexpectedResultException e) {
+                return deoptimize(e.result, right.execute(interpreter));
+            }
+            double r;
+            try {
+                r = right.executeDouble(interpreter);
+            } catch (UnexpectedResultException e) {
+                return deoptimize(l, e.result);
+            }
+            return switch (operator.type) {
+                case GREATER -> l > r;
+                case GREATER_EQUAL -> l >= r;
+                case LESS -> l < r;
+                default -> l <= r;
+            };
+        }
+
+        private Object deoptimize(Object l, Object r) {
+            replace(new Generic(operator, left, right));
+            return Interpreter.applyBinary(operator, l, r);
+        }
+    }
+}
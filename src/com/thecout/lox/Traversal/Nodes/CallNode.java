@@ -0,0 +1,109 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
+import com.thecout.lox.Traversal.InterpreterUtils.TailCall;
+
+/**
+ * Call sites with an inline cache. The first call remembers the LoxFunction
+ * it saw; as long as the callee stays the same the call goes straight to the
+ * cached function. Any other callee turns the site generic.
+ */
+public abstract class CallNode extends ExprNode {
+    ExprNode callee;
+    final ExprNode[] arguments;
+
+    CallNode(ExprNode callee, ExprNode[] arguments) {
+        this.callee = adopt(callee);
+        this.arguments = arguments;
+        for (ExprNode argument : arguments) {
+            adopt(argument);
+        }
+    }
+
+    @Override
+    public Object execute(Interpreter interpreter) {
+        Object function = callee.execute(interpreter);
+        Object[] values = evaluateArguments(interpreter);
+        return select(function).call(interpreter, values);
+    }
+
+    /**
+     * Evaluates the callee and arguments like execute() but leaves the call
+     * itself to the LoxFunction whose body ends in this tail call.
+     */
+    public TailCall executeTail(Interpreter interpreter) {
+        Object function = callee.execute(interpreter);
+        Object[] values = evaluateArguments(interpreter);
+        return new TailCall(select(function), values);
+    }
+
+    // Updates the inline cache for the callee that was just evaluated.
+    abstract LoxCallable select(Object function);
+
+    Object[] evaluateArguments(Interpreter interpreter) {
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i] = arguments[i].execute(interpreter);
+        }
+        return values;
+    }
+
+    @Override
+    void replaceChild(ExprNode child, ExprNode replacement) {
+        if (callee == child) callee = replacement;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] == child) arguments[i] = replacement;
+        }
+    }
+
+    static class Uninitialized extends CallNode {
+        Uninitialized(ExprNode callee, ExprNode[] arguments) {
+            super(callee, arguments);
+        }
+
+        @Override
+        LoxCallable select(Object function) {
+            if (function instanceof LoxFunction) {
+                replace(new Monomorphic(callee, arguments, (LoxFunction) function));
+            } else {
+                replace(new Generic(callee, arguments));
+            }
+            return (LoxCallable) function;
+        }
+    }
+
+    public static class Monomorphic extends CallNode {
+        private final LoxFunction cached;
+
+        Monomorphic(ExprNode callee, ExprNode[] arguments, LoxFunction cached) {
+            super(callee, arguments);
+            this.cached = cached;
+        }
+
+        public LoxFunction cached() {
+            return cached;
+        }
+
+        @Override
+        LoxCallable select(Object function) {
+            if (function == cached) {
+                return cached;
+            }
+            replace(new Generic(callee, arguments));
+            return (LoxCallable) function;
+        }
+    }
+
+    static class Generic extends CallNode {
+        Generic(ExprNode callee, ExprNode[] arguments) {
+            super(callee, arguments);
+        }
+
+        @Override
+        LoxCallable select(Object function) {
+            return (LoxCallable) function;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Traversal.Interpreter;
+
+/**
+ * Executable counterpart of an Expr. Nodes start out uninitialized, observe
+ * the values flowing through them and replace themselves in their parent
+ * with a specialized version; a specialized node whose assumption breaks
+ * rewrites itself back to the generic one.
+ */
+public abstract class ExprNode {
+    ExprNode parent;
+
+    public abstract Object execute(Interpreter interpreter);
+
+    public double executeDouble(Interpreter interpreter) throws UnexpectedResultException {
+        Object value = execute(interpreter);
+        if (value instanceof Double) {
+            return (double) value;
+        }
+        throw new UnexpectedResultException(value);
+    }
+
+    <T extends ExprNode> T adopt(T child) {
+        child.parent = this;
+        return child;
+    }
+
+    <T extends ExprNode> T replace(T replacement) {
+        parent.replaceChild(this, replacement);
+        replacement.parent = parent;
+        return replacement;
+    }
+
+    void replaceChild(ExprNode child, ExprNode replacement) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no children");
+    }
+}
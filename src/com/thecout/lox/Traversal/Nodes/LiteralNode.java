@@ -0,0 +1,24 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Traversal.Interpreter;
+
+public class LiteralNode extends ExprNode {
+    private final Object value;
+
+    LiteralNode(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object execute(Interpreter interpreter) {
+        return value;
+    }
+
+    @Override
+    public double executeDouble(Interpreter interpreter) throws UnexpectedResultException {
+        if (value instanceof Double) {
+            return (double) value;
+        }
+        throw new UnexpectedResultException(value);
+    }
+}
@@ -0,0 +1,32 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+import com.thecout.lox.Traversal.Interpreter;
+
+public class LogicalNode extends ExprNode {
+    private final Token operator;
+    private ExprNode left;
+    private ExprNode right;
+
+    LogicalNode(Token operator, ExprNode left, ExprNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    @Override
+    public Object execute(Interpreter interpreter) {
+        boolean l = (boolean) left.execute(interpreter);
+        if (operator.type == TokenType.OR) {
+            return l || (boolean) right.execute(interpreter);
+        }
+        return l && (boolean) right.execute(interpreter);
+    }
+
+    @Override
+    void replaceChild(ExprNode child, ExprNode replacement) {
+        if (left == child) left = replacement;
+        if (right == child) right = replacement;
+    }
+}
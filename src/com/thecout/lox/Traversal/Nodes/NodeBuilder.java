@@ -0,0 +1,63 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Parser.Expr.*;
+
+/**
+ * Turns a resolved Expr tree into a tree of uninitialized executable nodes.
+ */
+public class NodeBuilder implements ExprVisitor<ExprNode> {
+    public RootNode build(Expr expr) {
+        return new RootNode(expr.accept(this));
+    }
+
+    @Override
+    public ExprNode visitAssignExpr(Assign expr) {
+        ExprNode value = expr.value.accept(this);
+        if (expr.depth < 0) {
+            return new VariableNode.GlobalWrite(expr.name, value);
+        }
+        return new VariableNode.LocalWrite(expr.depth, expr.slot, value);
+    }
+
+    @Override
+    public ExprNode visitBinaryExpr(Binary expr) {
+        return new BinaryNode.Uninitialized(expr.operator, expr.left.accept(this), expr.right.accept(this));
+    }
+
+    @Override
+    public ExprNode visitCallExpr(Call expr) {
+        ExprNode[] arguments = new ExprNode[expr.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = expr.arguments.get(i).accept(this);
+        }
+        return new CallNode.Uninitialized(expr.callee.accept(this), arguments);
+    }
+
+    @Override
+    public ExprNode visitGroupingExpr(Grouping expr) {
+        return expr.expression.accept(this);
+    }
+
+    @Override
+    public ExprNode visitLiteralExpr(Literal expr) {
+        return new LiteralNode(expr.value);
+    }
+
+    @Override
+    public ExprNode visitLogicalExpr(Logical expr) {
+        return new LogicalNode(expr.operator, expr.left.accept(this), expr.right.accept(this));
+    }
+
+    @Override
+    public ExprNode visitUnaryExpr(Unary expr) {
+        return new UnaryNode(expr.operator, expr.right.accept(this));
+    }
+
+    @Override
+    public ExprNode visitVariableExpr(Variable expr) {
+        if (expr.depth < 0) {
+            return new VariableNode.GlobalRead(expr.name);
+        }
+        return new VariableNode.LocalRead(expr.depth, expr.slot);
+    }
+}
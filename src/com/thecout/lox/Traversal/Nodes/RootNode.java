@@ -0,0 +1,28 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Traversal.Interpreter;
+
+/**
+ * Holds the top of a node tree so the top node can rewrite itself too.
+ */
+public class RootNode extends ExprNode {
+    private ExprNode child;
+
+    public RootNode(ExprNode child) {
+        this.child = adopt(child);
+    }
+
+    public ExprNode child() {
+        return child;
+    }
+
+    @Override
+    public Object execute(Interpreter interpreter) {
+        return child.execute(interpreter);
+    }
+
+    @Override
+    void replaceChild(ExprNode old, ExprNode replacement) {
+        child = replacement;
+    }
+}
@@ -0,0 +1,32 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+import com.thecout.lox.Traversal.Interpreter;
+
+public class UnaryNode extends ExprNode {
+    private final Token operator;
+    private ExprNode right;
+
+    UnaryNode(Token operator, ExprNode right) {
+        this.operator = operator;
+        this.right = adopt(right);
+    }
+
+    @Override
+    public Object execute(Interpreter interpreter) {
+        if (operator.type == TokenType.MINUS) {
+            try {
+                return -right.executeDouble(interpreter);
+            } catch (UnexpectedResultException e) {
+                return -(double) e.result;
+            }
+        }
+        return !(boolean) right.execute(interpreter);
+    }
+
+    @Override
+    void replaceChild(ExprNode child, ExprNode replacement) {
+        right = replacement;
+    }
+}
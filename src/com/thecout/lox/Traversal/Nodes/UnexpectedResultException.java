@@ -0,0 +1,15 @@
+package com.thecout.lox.Traversal.Nodes;
+
+/**
+ * Thrown by a specialized execute method when the value does not have the
+ * type the node was specialized for. Carries the value so the caller can
+ * continue generically after rewriting itself.
+ */
+public class UnexpectedResultException extends Exception {
+    final Object result;
+
+    UnexpectedResultException(Object result) {
+        super(null, null, false, false);
+        this.result = result;
+    }
+}
@@ -0,0 +1,83 @@
+package com.thecout.lox.Traversal.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.Interpreter;
+
+/**
+ * Reads and writes of resolved locals and of globals.
+ */
+public abstract class VariableNode extends ExprNode {
+    static class LocalRead extends VariableNode {
+        private final int depth;
+        private final int slot;
+
+        LocalRead(int depth, int slot) {
+            this.depth = depth;
+            this.slot = slot;
+        }
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            return interpreter.currentEnvironment().getAt(depth, slot);
+        }
+    }
+
+    static class GlobalRead extends VariableNode {
+        private final Token name;
+
+        GlobalRead(Token name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            return interpreter.globals.get(name);
+        }
+    }
+
+    static class LocalWrite extends VariableNode {
+        private final int depth;
+        private final int slot;
+        private ExprNode value;
+
+        LocalWrite(int depth, int slot, ExprNode value) {
+            this.depth = depth;
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            Object result = value.execute(interpreter);
+            interpreter.currentEnvironment().assignAt(depth, slot, result);
+            return result;
+        }
+
+        @Override
+        void replaceChild(ExprNode child, ExprNode replacement) {
+            value = replacement;
+        }
+    }
+
+    static class GlobalWrite extends VariableNode {
+        private final Token name;
+        private ExprNode value;
+
+        GlobalWrite(Token name, ExprNode value) {
+            this.name = name;
+            this.value = adopt(value);
+        }
+
+        @Override
+        public Object execute(Interpreter interpreter) {
+            Object result = value.execute(interpreter);
+            interpreter.globals.assign(name, result);
+            return result;
+        }
+
+        @Override
+        void replaceChild(ExprNode child, ExprNode replacement) {
+            value = replacement;
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package com.thecout.lox.Traversal;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Symbol;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewriting pass that runs between the Parser and the Resolver. Operators
+ * whose operands are all literals are evaluated once here instead of on
+ * every execution, Grouping wrappers are dropped, a few identities such as
+ * x * 1 are removed and if statements with a constant condition are replaced
+ * by the branch that is taken.
+ *
+ * Loops in the shape for statements are desugared to get two more rewrites:
+ * the body block is merged into the block that holds the increment, and
+ * invariant parts of the condition are computed once into a hidden local
+ * before the loop.
+ *
+ * Nothing is rewritten that could change what the program prints or where
+ * it fails: an operator that would throw at runtime is left alone, and an
+ * identity is only removed when its operand is a number anyway or the
+ * enclosing operator fails on the same values. Subtrees that do not change
+ * are returned as they are.
+ */
+public class Optimizer implements ExprVisitor<Expr>, StmtVisitor<Stmt> {
+    // Hidden locals are named with a character identifiers cannot contain.
+    private static final String HOISTED_PREFIX = "$";
+
+    private int hoisted;
+
+    public List<Stmt> optimize(List<Stmt> statements) {
+        return optimizeAll(statements);
+    }
+
+    public Expr optimize(Expr expr) {
+        return expr == null ? null : expr.accept(this);
+    }
+
+    // Returns null when the statement does nothing at all.
+    public Stmt optimize(Stmt stmt) {
+        return stmt == null ? null : stmt.accept(this);
+    }
+
+    private List<Stmt> optimizeAll(List<Stmt> statements) {
+        List<Stmt> optimized = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (Stmt statement : statements) {
+            Stmt result = optimize(statement);
+            changed |= result != statement;
+            if (result != null) {
+                optimized.add(result);
+            }
+        }
+        return changed ? optimized : statements;
+    }
+
+    // A statement that has to stay, e.g. as the body of a loop.
+    private Stmt required(Stmt stmt) {
+        Stmt result = optimize(stmt);
+        return result != null ? result : new Block(new ArrayList<>());
+    }
+
+    @Override
+    public Expr visitAssignExpr(Assign expr) {
+        Expr value = optimize(expr.value);
+        return value == expr.value ? expr : new Assign(expr.name, value);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Binary expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+        if (left instanceof Literal && right instanceof Literal) {
+            try {
+                Object value = Interpreter.applyBinary(expr.operator, ((Literal) left).value, ((Literal) right).value);
+                if (value != null) {
+                    return new Literal(value);
+                }
+            } catch (ClassCastException | NullPointerException error) {
+                // Fails at runtime, so it has to be evaluated at runtime.
+            }
+        }
+        if (castsToDouble(expr.operator.type, left, right)) {
+            // The left operand may only drop its own cast when nothing
+            // observable runs between it and this operator's cast.
+            if (isPure(right)) {
+                left = stripIdentities(left);
+            }
+            right = stripIdentities(right);
+        }
+        Binary result = left == expr.left && right == expr.right ? expr : new Binary(left, expr.operator, right);
+        Expr operand = identityOperand(result);
+        if (operand != null && Interpreter.isNumeric(operand)) {
+            return operand;
+        }
+        return result;
+    }
+
+    @Override
+    public Expr visitCallExpr(Call expr) {
+        Expr callee = optimize(expr.callee);
+        List<Expr> arguments = new ArrayList<>(expr.arguments.size());
+        boolean changed = callee != expr.callee;
+        for (Expr argument : expr.arguments) {
+            Expr result = optimize(argument);
+            changed |= result != argument;
+            arguments.add(result);
+        }
+        return changed ? new Call(callee, arguments) : expr;
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Grouping expr) {
+        return optimize(expr.expression);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Logical expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+        boolean isAnd = expr.operator.type == TokenType.AND;
+        if (left instanceof Literal && ((Literal) left).value instanceof Boolean) {
+            boolean value = (Boolean) ((Literal) left).value;
+            if (value != isAnd) {
+                // false and x, true or x: x is never evaluated.
+                return left;
+            }
+            if (isBoolean(right)) {
+                return right;
+            }
+        }
+        if (right instanceof Literal && Boolean.valueOf(isAnd).equals(((Literal) right).value) && isBoolean(left)) {
+            // x and true, x or false.
+            return left;
+        }
+        return left == expr.left && right == expr.right ? expr : new Logical(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Unary expr) {
+        Expr right = optimize(expr.right);
+        if (right instanceof Literal) {
+            Object value = ((Literal) right).value;
+            if (expr.operator.type == TokenType.MINUS && value instanceof Double) {
+                return new Literal(-(Double) value);
+            }
+            if (expr.operator.type == TokenType.BANG && value instanceof Boolean) {
+                return new Literal(!(Boolean) value);
+            }
+        }
+        if (right instanceof Unary && ((Unary) right).operator.type == expr.operator.type) {
+            Expr operand = ((Unary) right).right;
+            // -(-x) and !!x.
+            if (expr.operator.type == TokenType.MINUS ? Interpreter.isNumeric(operand) : isBoolean(operand)) {
+                return operand;
+            }
+        }
+        if (expr.operator.type == TokenType.MINUS) {
+            right = stripIdentities(right);
+        }
+        return right == expr.right ? expr : new Unary(expr.operator, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Variable expr) {
+        return expr;
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Block stmt) {
+        List<Stmt> statements = optimizeLoop(optimizeAll(stmt.statements));
+        return statements == stmt.statements ? stmt : new Block(statements);
+    }
+
+    // Parser.forStatement() produces Block(init, While(condition,
+    // Block(body, increment))); a hand-written loop of the same shape is
+    // treated the same way.
+    private List<Stmt> optimizeLoop(List<Stmt> statements) {
+        if (statements.isEmpty() || !(statements.get(statements.size() - 1) instanceof While)) {
+            return statements;
+        }
+        While loop = (While) statements.get(statements.size() - 1);
+        if (!(loop.body instanceof Block)) {
+            return statements;
+        }
+        List<Stmt> body = ((Block) loop.body).statements;
+        if (body.size() != 2 || !(body.get(0) instanceof Block) || !(body.get(1) instanceof Expression)) {
+            return statements;
+        }
+
+        Stmt newBody = loop.body;
+        List<Stmt> inner = ((Block) body.get(0)).statements;
+        Expression increment = (Expression) body.get(1);
+        // One scope instead of two per iteration, unless the body declares
+        // a name the increment uses.
+        LoopScan incrementNames = new LoopScan();
+        incrementNames.scan(increment);
+        if (!declaresAny(inner, incrementNames.names)) {
+            List<Stmt> merged = new ArrayList<>(inner);
+            merged.add(increment);
+            newBody = new Block(merged);
+        }
+
+        List<Stmt> result = new ArrayList<>(statements.subList(0, statements.size() - 1));
+        Expr condition = loop.condition;
+        LoopScan scan = new LoopScan();
+        scan.scan(loop);
+        // A call may change any global, so only call-free loops are hoisted.
+        if (!scan.calls) {
+            condition = hoist(condition, scan.assigned, result);
+        }
+        if (condition == loop.condition && newBody == loop.body) {
+            return statements;
+        }
+        result.add(new While(loop.keyword, condition, newBody));
+        return result;
+    }
+
+    // Replaces invariant operator subtrees of a loop condition by hidden
+    // locals declared in front of the loop. They are evaluated exactly where
+    // the condition is evaluated first, so they fail at the same point.
+    private Expr hoist(Expr expr, Set<Symbol> assigned, List<Stmt> declarations) {
+        if (expr instanceof Binary || expr instanceof Unary || expr instanceof Logical) {
+            if (isInvariant(expr, assigned)) {
+                Token name = new Token(Symbol.intern(HOISTED_PREFIX + hoisted++), 0);
+                declarations.add(new Var(name, expr));
+                return new Variable(name);
+            }
+        }
+        if (expr instanceof Binary) {
+            Binary binary = (Binary) expr;
+            Expr left = hoist(binary.left, assigned, declarations);
+            Expr right = hoist(binary.right, assigned, declarations);
+            return left == binary.left && right == binary.right ? expr : new Binary(left, binary.operator, right);
+        }
+        if (expr instanceof Logical) {
+            // The right operand is not always evaluated.
+            Logical logical = (Logical) expr;
+            Expr left = hoist(logical.left, assigned, declarations);
+            return left == logical.left ? expr : new Logical(left, logical.operator, logical.right);
+        }
+        if (expr instanceof Unary) {
+            Unary unary = (Unary) expr;
+            Expr right = hoist(unary.right, assigned, declarations);
+            return right == unary.right ? expr : new Unary(unary.operator, right);
+        }
+        return expr;
+    }
+
+    private static boolean isInvariant(Expr expr, Set<Symbol> assigned) {
+        if (expr instanceof Literal) return true;
+        if (expr instanceof Variable) return !assigned.contains(((Variable) expr).name.symbol);
+        if (expr instanceof Binary) {
+            return isInvariant(((Binary) expr).left, assigned) && isInvariant(((Binary) expr).right, assigned);
+        }
+        if (expr instanceof Logical) {
+            return isInvariant(((Logical) expr).left, assigned) && isInvariant(((Logical) expr).right, assigned);
+        }
+        if (expr instanceof Unary) return isInvariant(((Unary) expr).right, assigned);
+        return false;
+    }
+
+    private static boolean declaresAny(List<Stmt> statements, Set<Symbol> names) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Var && names.contains(((Var) statement).name.symbol)) return true;
+            if (statement instanceof Function && names.contains(((Function) statement).name.symbol)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Expression stmt) {
+        Expr expression = optimize(stmt.expression);
+        if (expression instanceof Literal) {
+            return null;
+        }
+        return expression == stmt.expression ? stmt : new Expression(expression);
+    }
+
+    @Override
+    public Stmt visitFunctionStmt(Function stmt) {
+        List<Stmt> body = optimizeAll(stmt.body);
+        return body == stmt.body ? stmt : new Function(stmt.name, stmt.parameters, body);
+    }
+
+    @Override
+    public Stmt visitIfStmt(If stmt) {
+        Expr condition = optimize(stmt.condition);
+        if (condition instanceof Literal && ((Literal) condition).value instanceof Boolean) {
+            return (Boolean) ((Literal) condition).value ? optimize(stmt.thenBranch) : optimize(stmt.elseBranch);
+        }
+        Stmt thenBranch = required(stmt.thenBranch);
+        Stmt elseBranch = optimize(stmt.elseBranch);
+        if (condition == stmt.condition && thenBranch == stmt.thenBranch && elseBranch == stmt.elseBranch) {
+            return stmt;
+        }
+        return new If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Print stmt) {
+        Expr expression = optimize(stmt.expression);
+        return expression == stmt.expression ? stmt : new Print(expression);
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Return stmt) {
+        Expr value = optimize(stmt.value);
+        return value == stmt.value ? stmt : new Return(value);
+    }
+
+    @Override
+    public Stmt visitVarStmt(Var stmt) {
+        Expr initializer = optimize(stmt.initializer);
+        return initializer == stmt.initializer ? stmt : new Var(stmt.name, initializer);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(While stmt) {
+        Expr condition = optimize(stmt.condition);
+        Stmt body = required(stmt.body);
+        return condition == stmt.condition && body == stmt.body ? stmt : new While(stmt.keyword, condition, body);
+    }
+
+    // The operand of x - 0, x * 1, 1 * x or x / 1, or null.
+    private static Expr identityOperand(Binary expr) {
+        switch (expr.operator.type) {
+            case MINUS:
+                return isLiteral(expr.right, 0.0) ? expr.left : null;
+            case STAR:
+                if (isLiteral(expr.right, 1.0)) return expr.left;
+                return isLiteral(expr.left, 1.0) ? expr.right : null;
+            case SLASH:
+                return isLiteral(expr.right, 1.0) ? expr.left : null;
+            default:
+                return null;
+        }
+    }
+
+    // Removes identities from an operand that is cast to a double right
+    // after it is evaluated, since a non-number fails that cast as well.
+    private static Expr stripIdentities(Expr expr) {
+        for (;;) {
+            Expr operand = expr instanceof Binary ? identityOperand((Binary) expr) : null;
+            if (operand == null) return expr;
+            expr = operand;
+        }
+    }
+
+    private static boolean castsToDouble(TokenType operator, Expr left, Expr right) {
+        return switch (operator) {
+            case MINUS, STAR, SLASH, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> true;
+            // Otherwise it may be string concatenation.
+            case PLUS -> Interpreter.isNumeric(left) || Interpreter.isNumeric(right);
+            default -> false;
+        };
+    }
+
+    private static boolean isBoolean(Expr expr) {
+        if (expr instanceof Literal) {
+            return ((Literal) expr).value instanceof Boolean;
+        }
+        if (expr instanceof Binary) {
+            return switch (((Binary) expr).operator.type) {
+                case EQUAL_EQUAL, BANG_EQUAL, GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> true;
+                default -> false;
+            };
+        }
+        if (expr instanceof Unary) {
+            return ((Unary) expr).operator.type == TokenType.BANG;
+        }
+        // The VM's and/or produce one of their operands.
+        return expr instanceof Logical && isBoolean(((Logical) expr).left) && isBoolean(((Logical) expr).right);
+    }
+
+    private static boolean isPure(Expr expr) {
+        return expr instanceof Literal || expr instanceof Variable;
+    }
+
+    private static boolean isLiteral(Expr expr, double value) {
+        return expr instanceof Literal && ((Literal) expr).value instanceof Double
+                && Double.doubleToRawLongBits((Double) ((Literal) expr).value) == Double.doubleToRawLongBits(value);
+    }
+
+    // Collects the names a loop reads, assigns or declares and whether it
+    // calls or declares functions.
+    private static class LoopScan implements ExprVisitor<Void>, StmtVisitor<Void> {
+        final Set<Symbol> names = new HashSet<>();
+        final Set<Symbol> assigned = new HashSet<>();
+        boolean calls;
+
+        void scan(Stmt stmt) {
+            if (stmt != null) stmt.accept(this);
+        }
+
+        void scan(Expr expr) {
+            if (expr != null) expr.accept(this);
+        }
+
+        @Override
+        public Void visitAssignExpr(Assign expr) {
+            names.add(expr.name.symbol);
+            assigned.add(expr.name.symbol);
+            scan(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Binary expr) {
+            scan(expr.left);
+            scan(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitCallExpr(Call expr) {
+            calls = true;
+            scan(expr.callee);
+            expr.arguments.forEach(this::scan);
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Grouping expr) {
+            scan(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Literal expr) {
+            return null;
+        }
+
+        @Override
+        public Void visitLogicalExpr(Logical expr) {
+            scan(expr.left);
+            scan(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Unary expr) {
+            scan(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Variable expr) {
+            names.add(expr.name.symbol);
+            return null;
+        }
+
+        @Override
+        public Void visitBlockStmt(Block stmt) {
+            stmt.statements.forEach(this::scan);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(Expression stmt) {
+            scan(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionStmt(Function stmt) {
+            calls = true;
+            assigned.add(stmt.name.symbol);
+            stmt.body.forEach(this::scan);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(If stmt) {
+            scan(stmt.condition);
+            scan(stmt.thenBranch);
+            scan(stmt.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStmt(Print stmt) {
+            scan(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitReturnStmt(Return stmt) {
+            scan(stmt.value);
+            return null;
+        }
+
+        @Override
+        public Void visitVarStmt(Var stmt) {
+            // A shadowing declaration is treated like an assignment.
+            assigned.add(stmt.name.symbol);
+            scan(stmt.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(While stmt) {
+            scan(stmt.condition);
+            scan(stmt.body);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.thecout.lox.Traversal;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Symbol;
+import com.thecout.lox.Traversal.InterpreterUtils.Natives;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marks the functions whose calls can be answered from a memo cache. A
+ * function is pure when it prints nothing, declares no function, only reads
+ * and assigns its own locals, and only calls or reads global functions that
+ * are pure themselves and never rebound. Also marks the global functions
+ * whose name is rebound. Runs after the Resolver, whose addresses tell
+ * locals apart from captured and global variables.
+ */
+public class PurityAnalysis implements ExprVisitor<Void>, StmtVisitor<Void> {
+    private static class Facts {
+        boolean pure = true;
+        // Global names the body reads, which must all be pure functions.
+        final Set<Symbol> globals = new HashSet<>();
+    }
+
+    private final Map<Function, Facts> functions = new LinkedHashMap<>();
+    private final Map<Symbol, Integer> declarations = new HashMap<>();
+    private final Map<Symbol, Function> globalFunctions = new HashMap<>();
+    private final Set<Symbol> assigned = new HashSet<>();
+    // A native can be replaced by a later declaration of the same name.
+    private final Set<String> natives = Natives.all().keySet();
+    // Facts of the innermost function being visited, null at the top level.
+    private Facts current;
+    // Scopes opened inside that function's parameter scope.
+    private int depth;
+
+    public void analyze(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Function) {
+                globalFunctions.put(((Function) statement).name.symbol, (Function) statement);
+                declarations.merge(((Function) statement).name.symbol, 1, Integer::sum);
+            } else if (statement instanceof Var) {
+                declarations.merge(((Var) statement).name.symbol, 1, Integer::sum);
+            }
+            visit(statement);
+        }
+        // Start from every locally pure function and drop the ones that
+        // depend on an impure one until nothing changes.
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Facts facts : functions.values()) {
+                if (facts.pure && !facts.globals.stream().allMatch(this::isPureGlobal)) {
+                    facts.pure = false;
+                    changed = true;
+                }
+            }
+        }
+        functions.forEach((function, facts) -> function.pure = facts.pure);
+        for (Stmt statement : statements) {
+            if (statement instanceof Function) {
+                Symbol name = ((Function) statement).name.symbol;
+                ((Function) statement).rebound = declarations.get(name) > 1 || assigned.contains(name);
+            }
+        }
+    }
+
+    private boolean isPureGlobal(Symbol name) {
+        Function function = globalFunctions.get(name);
+        return function != null && declarations.get(name) == 1 && !assigned.contains(name)
+                && !natives.contains(name.name) && functions.get(function).pure;
+    }
+
+    private void visit(Stmt stmt) {
+        if (stmt != null) {
+            stmt.accept(this);
+        }
+    }
+
+    private void visit(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            visit(statement);
+        }
+    }
+
+    private void visit(Expr expr) {
+        if (expr != null) {
+            expr.accept(this);
+        }
+    }
+
+    private void impure() {
+        if (current != null) {
+            current.pure = false;
+        }
+    }
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        visit(expr.value);
+        if (expr.depth < 0) {
+            assigned.add(expr.name.symbol);
+            impure();
+        } else if (expr.depth > depth) {
+            impure();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        visit(expr.left);
+        visit(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Call expr) {
+        // Anything but a global function may be bound to an impure callee.
+        if (!(expr.callee instanceof Variable) || ((Variable) expr.callee).depth >= 0) {
+            impure();
+        }
+        visit(expr.callee);
+        for (Expr argument : expr.arguments) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        visit(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Logical expr) {
+        visit(expr.left);
+        visit(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        visit(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        if (current == null) return null;
+        if (expr.depth < 0) {
+            current.globals.add(expr.name.symbol);
+        } else if (expr.depth > depth) {
+            current.pure = false;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        // Mirrors the Resolver, which opens no scope for an empty frame.
+        if (stmt.frameSize > 0) depth++;
+        visit(stmt.statements);
+        if (stmt.frameSize > 0) depth--;
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        visit(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Function stmt) {
+        // A nested function could capture the call's locals and outlive it.
+        impure();
+        Facts enclosing = current;
+        int enclosingDepth = depth;
+        current = new Facts();
+        depth = 0;
+        functions.put(stmt, current);
+        visit(stmt.body);
+        current = enclosing;
+        depth = enclosingDepth;
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        visit(stmt.condition);
+        visit(stmt.thenBranch);
+        visit(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        impure();
+        visit(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Return stmt) {
+        visit(stmt.value);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        visit(stmt.initializer);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        visit(stmt.condition);
+        visit(stmt.body);
+        return null;
+    }
+}
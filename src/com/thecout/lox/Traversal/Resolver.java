@@ -0,0 +1,223 @@
+package com.thecout.lox.Traversal;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Symbol;
+import com.thecout.lox.Token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static pass that runs between the Parser and the Interpreter. Every local
+ * variable gets a (depth, slot) address so the interpreter can index the
+ * environment chain directly instead of hashing names. Anything declared at
+ * the top level stays global and is looked up by name.
+ */
+public class Resolver implements ExprVisitor<Void>, StmtVisitor<Void> {
+    private static class Scope {
+        final Map<Symbol, Integer> slots = new HashMap<>();
+
+        int declare(Token name) {
+            return slots.computeIfAbsent(name.symbol, k -> slots.size());
+        }
+    }
+
+    private final List<Scope> scopes = new ArrayList<>();
+    // Function declarations seen so far, to tell whether a loop body has any.
+    private int functions;
+    // Number of function bodies being resolved.
+    private int functionDepth;
+
+    public void resolve(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            resolve(statement);
+        }
+    }
+
+    private void resolve(Stmt stmt) {
+        if (stmt != null) {
+            stmt.accept(this);
+        }
+    }
+
+    private void resolve(Expr expr) {
+        if (expr != null) {
+            expr.accept(this);
+        }
+    }
+
+    private static boolean declaresAny(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Var || statement instanceof Function) return true;
+        }
+        return false;
+    }
+
+    private Scope beginScope() {
+        Scope scope = new Scope();
+        scopes.add(scope);
+        return scope;
+    }
+
+    private void endScope() {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private int declare(Token name) {
+        if (scopes.isEmpty()) return -1;
+        return scopes.get(scopes.size() - 1).declare(name);
+    }
+
+    // Returns {depth, slot}, or null when the name is not found in any local scope.
+    private int[] lookup(Token name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Integer slot = scopes.get(i).slots.get(name.symbol);
+            if (slot != null) {
+                return new int[]{scopes.size() - 1 - i, slot};
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        resolve(expr.value);
+        int[] address = lookup(expr.name);
+        expr.depth = address == null ? -1 : address[0];
+        expr.slot = address == null ? -1 : address[1];
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Call expr) {
+        resolve(expr.callee);
+        for (Expr argument : expr.arguments) {
+            resolve(argument);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        resolve(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Logical expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        int[] address = lookup(expr.name);
+        expr.depth = address == null ? -1 : address[0];
+        expr.slot = address == null ? -1 : address[1];
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        // A block that declares nothing gets no environment at runtime, so
+        // it must not count as a scope either.
+        if (!declaresAny(stmt.statements)) {
+            resolve(stmt.statements);
+            stmt.frameSize = 0;
+            return null;
+        }
+        Scope scope = beginScope();
+        resolve(stmt.statements);
+        endScope();
+        stmt.frameSize = scope.slots.size();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Function stmt) {
+        functions++;
+        // Declared before the body is resolved so the function can call itself.
+        stmt.slot = declare(stmt.name);
+        Scope scope = beginScope();
+        for (Token param : stmt.parameters) {
+            scope.declare(param);
+        }
+        int before = functions;
+        functionDepth++;
+        resolve(stmt.body);
+        functionDepth--;
+        endScope();
+        stmt.frameSize = scope.slots.size();
+        stmt.reuseEnvironment = functions == before;
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.thenBranch);
+        resolve(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Return stmt) {
+        resolve(stmt.value);
+        stmt.tailCall = functionDepth > 0 && stmt.value instanceof Call;
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        // The initializer still sees an outer variable of the same name.
+        resolve(stmt.initializer);
+        stmt.slot = declare(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        resolve(stmt.condition);
+        int before = functions;
+        resolve(stmt.body);
+        // Only a function declared inside the body can keep its environment
+        // alive past the iteration that created it.
+        stmt.reuseEnvironment = stmt.body instanceof Block && ((Block) stmt.body).frameSize > 0
+                && functions == before;
+        return null;
+    }
+}
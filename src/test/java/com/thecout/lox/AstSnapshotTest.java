@@ -0,0 +1,137 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.AstPrinter;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.OutputSink;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AstSnapshotTest {
+    static final String literals = """
+            var s = "text with ünïcode";
+            var t = "x";
+            var x = -1500.5 + 0.25;
+            if (!(x == nil) or false and true) print s; else print t;
+            while (x < 0) { x = x + 1000; }
+            fun f(a, b, c) { return (a + b) * c; }
+            print f(1, 2, 3);
+            """;
+
+    @Test
+    void roundTripTest() {
+        for (String source : new String[]{literals, InterpretTest.program, InterpretTest.looptest,
+                InterpretTest.earlyReturn, InterpretTest.tailCalls, OptimizerTest.program,
+                ParallelParserTest.declarations.repeat(20)}) {
+            List<Stmt> expected = parse(source);
+            List<Stmt> actual = AstSnapshot.read(ByteBuffer.wrap(AstSnapshot.write(expected)));
+            assertEquals(print(expected), print(actual), source);
+            IncrementalParserTest.assertSameTree(expected, actual, source);
+        }
+    }
+
+    @Test
+    void syntaxErrorTest() {
+        // The statements the parser gave up on are stored as nulls.
+        String source = ParallelParserTest.declarations.replace("var x = add(1, 2);", "var x = add(1, 2;");
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        List<Stmt> expected;
+        try {
+            expected = parse(source);
+        } finally {
+            System.setOut(originalOut);
+        }
+        IncrementalParserTest.assertSameTree(expected,
+                AstSnapshot.read(ByteBuffer.wrap(AstSnapshot.write(expected))), source);
+    }
+
+    @Test
+    void fileTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("program.loxs");
+        List<Stmt> expected = parse(InterpretTest.tailCalls);
+        AstSnapshot.write(expected, file);
+        List<Stmt> actual = AstSnapshot.read(file);
+        // Decoded out of order, one declaration at a time.
+        for (int i = actual.size() - 1; i >= 0; i--) {
+            assertEquals(new AstPrinter().print(expected.get(i)), new AstPrinter().print(actual.get(i)));
+        }
+        assertEquals(ExecutionService.run(InterpretTest.tailCalls), run(actual));
+    }
+
+    @Test
+    void versionTest() {
+        byte[] bytes = AstSnapshot.write(parse(literals));
+        bytes[5]++;
+        assertThrows(IllegalArgumentException.class, () -> AstSnapshot.read(ByteBuffer.wrap(bytes)));
+        assertThrows(IllegalArgumentException.class, () -> AstSnapshot.read(ByteBuffer.wrap(literals.getBytes())));
+    }
+
+    @Test
+    void truncatedTest(@TempDir Path directory) throws IOException {
+        // Cut anywhere, a snapshot fails when it is opened or when the cut
+        // declaration is decoded, never with an unchecked buffer error.
+        byte[] bytes = AstSnapshot.write(parse(literals));
+        for (int length = 0; length < bytes.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(bytes, length));
+            assertThrows(IllegalArgumentException.class, () -> decodeAll(AstSnapshot.read(truncated)),
+                    "Length " + length);
+        }
+        Path file = directory.resolve("truncated.loxs");
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IllegalArgumentException.class, () -> decodeAll(AstSnapshot.read(file)));
+    }
+
+    @Test
+    void corruptCountTest() {
+        // The nodes of "{ print 1; }" end the snapshot: BLOCK, statement
+        // count 1, PRINT, LITERAL, pool index 0. A huge count must fail
+        // before anything is allocated for it.
+        byte[] bytes = AstSnapshot.write(parse("{ print 1; }"));
+        int count = bytes.length - 4;
+        assertEquals(1, bytes[count]);
+        byte[] corrupt = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, corrupt, 0, count);
+        System.arraycopy(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07}, 0, corrupt, count, 5);
+        System.arraycopy(bytes, count + 1, corrupt, count + 5, 3);
+        List<Stmt> statements = AstSnapshot.read(ByteBuffer.wrap(corrupt));
+        assertThrows(IllegalArgumentException.class, () -> statements.get(0));
+    }
+
+    private static void decodeAll(List<Stmt> statements) {
+        for (int i = 0; i < statements.size(); i++) {
+            statements.get(i);
+        }
+    }
+
+    private static String run(List<Stmt> statements) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter();
+        interpreter.setOutput(new OutputSink(output));
+        interpreter.interpret(statements);
+        return output.toString();
+    }
+
+    private static List<Stmt> parse(String source) {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+
+    private static String print(List<Stmt> statements) {
+        AstPrinter printer = new AstPrinter();
+        return statements.stream().map(printer::print).collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.SyntaxError;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExecutionServiceTest {
+    static final String script = """
+            var name = "script%d";
+            fun sum(n) {
+                var total = 0;
+                for (var i = 0; i < n; i = i + 1) total = total + i;
+                return total;
+            }
+            for (var i = 0; i < 3; i = i + 1) print name;
+            print sum(%d);
+            """;
+
+    @Test
+    void isolationTest() throws Exception {
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream shared = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(shared));
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutionService service = new ExecutionService(Executors.newFixedThreadPool(8))) {
+            for (int i = 0; i < 200; i++) {
+                results.add(service.submit(script.formatted(i, i)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                String name = "script" + i;
+                assertEquals(String.join("\n", name, name, name, Double.toString(i * (i - 1) / 2.0)) + "\n",
+                        results.get(i).get());
+            }
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertEquals("", shared.toString());
+    }
+
+    @Test
+    void sharedNativesTest() throws Exception {
+        // Assigning a native only shadows it in the script that did so.
+        assertEquals("1.0\n", ExecutionService.run("clock = 1; print clock;"));
+        try (ExecutionService service = new ExecutionService()) {
+            assertEquals("true\n", service.submit("print clock() > 0;").get());
+        }
+    }
+
+    @Test
+    void errorTest() throws Exception {
+        // Failing scripts report through their own futures, not the shared
+        // streams, however many of them run at once.
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        ByteArrayOutputStream shared = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(shared));
+        System.setErr(new PrintStream(shared));
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutionService service = new ExecutionService(Executors.newFixedThreadPool(8))) {
+            for (int i = 0; i < 100; i++) {
+                results.add(service.submit("print \"a%d\";\nprint missing%d;".formatted(i, i)));
+                results.add(service.submit("print \"b%d\";\nvar x = (%d;".formatted(i, i)));
+            }
+            for (int i = 0; i < 100; i++) {
+                ExecutionException runtime = assertThrows(ExecutionException.class, results.get(2 * i)::get);
+                assertInstanceOf(RuntimeError.class, runtime.getCause());
+                assertEquals("Undefined variable 'missing" + i + "'.", runtime.getCause().getMessage());
+                assertEquals(1, ((RuntimeError) runtime.getCause()).getLine());
+                ExecutionException syntax = assertThrows(ExecutionException.class, results.get(2 * i + 1)::get);
+                assertInstanceOf(SyntaxError.class, syntax.getCause());
+                assertEquals("1", ((SyntaxError) syntax.getCause()).getErrors().get(0).trim());
+            }
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+        assertEquals("", shared.toString());
+    }
+
+    @Test
+    void interruptedCloseTest() {
+        // An interrupted close() stops waiting and keeps the interrupt.
+        ExecutionService service = new ExecutionService(Executors.newSingleThreadExecutor(),
+                interpreter -> interpreter.setTimeLimit(Duration.ofMillis(500)));
+        Future<String> runaway = service.submit("while (true) {}");
+        Thread.currentThread().interrupt();
+        service.close();
+        assertTrue(Thread.interrupted());
+        assertThrows(ExecutionException.class, runaway::get);
+    }
+}
@@ -0,0 +1,138 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Expr.Expr;
+import com.thecout.lox.Parser.IncrementalParser;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalParserTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    static final String program = """
+            fun add(a, b) {
+                return a + b;
+            }
+            var x = add(1, 2);
+            if (x > 2) print x;
+            fun loop(n) {
+                for (var i = 0; i < n; i = i + 1) {
+                    print i;
+                }
+            }
+            print "done";
+            """;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void reuseTest() {
+        IncrementalParser parser = new IncrementalParser(program);
+        List<Stmt> before = parser.statements();
+        int offset = program.indexOf("a + b") + 4;
+        List<Stmt> after = parser.edit(offset, 1, "b * 2");
+        assertSameAsFullParse(parser);
+        assertNotSame(before.get(0), after.get(0));
+        for (int i = 2; i < before.size(); i++) {
+            assertSame(before.get(i), after.get(i));
+        }
+    }
+
+    @Test
+    void lineShiftTest() {
+        IncrementalParser parser = new IncrementalParser(program);
+        List<Stmt> before = parser.statements();
+        List<Stmt> after = parser.edit(program.indexOf("var x"), 0, "\n\n");
+        assertSameAsFullParse(parser);
+        assertSame(before.get(before.size() - 1), after.get(after.size() - 1));
+    }
+
+    @Test
+    void unbalancedEditTest() {
+        IncrementalParser parser = new IncrementalParser(program);
+        int brace = program.indexOf("}");
+        parser.edit(brace, 1, "");
+        assertSameAsFullParse(parser);
+        parser.edit(brace, 0, "}");
+        assertSameAsFullParse(parser);
+        assertEquals(program, parser.source());
+    }
+
+    @Test
+    void randomEditTest() {
+        Random random = new Random(42);
+        String[] pieces = {"}", "{", ";", "\n", " ", "x", "1", "(", ")", "print ", "var y = 2;", "if (x) ", " else ", "\""};
+        IncrementalParser parser = new IncrementalParser(program);
+        for (int i = 0; i < 300; i++) {
+            String source = parser.source();
+            int offset = random.nextInt(source.length() + 1);
+            int removed = random.nextInt(Math.min(4, source.length() - offset) + 1);
+            parser.edit(offset, removed, random.nextBoolean() ? pieces[random.nextInt(pieces.length)] : "");
+            assertSameAsFullParse(parser);
+        }
+    }
+
+    private static void assertSameAsFullParse(IncrementalParser parser) {
+        List<Token> tokens = new Scanner(parser.source()).scan();
+        List<Token> incrementalTokens = parser.tokens();
+        assertEquals(tokens.size(), incrementalTokens.size(), parser.source());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.get(i).toString(), incrementalTokens.get(i).toString(), parser.source());
+            assertEquals(tokens.get(i).line, incrementalTokens.get(i).line, parser.source());
+        }
+        List<Stmt> expected = new Parser(tokens).parse();
+        List<Stmt> actual = parser.statements();
+        assertEquals(expected.size(), actual.size(), parser.source());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameTree(expected.get(i), actual.get(i), parser.source());
+        }
+    }
+
+    // Structural comparison, since print() does not cope with the null
+    // statements and missing else branches that broken edits produce.
+    static void assertSameTree(Object expected, Object actual, String source) {
+        if (expected == null || actual == null) {
+            assertSame(expected, actual, source);
+        } else if (expected instanceof Token) {
+            assertEquals(expected.toString(), actual.toString(), source);
+            assertEquals(((Token) expected).line, ((Token) actual).line, source);
+        } else if (expected instanceof List) {
+            List<?> expectedList = (List<?>) expected;
+            List<?> actualList = (List<?>) actual;
+            assertEquals(expectedList.size(), actualList.size(), source);
+            for (int i = 0; i < expectedList.size(); i++) {
+                assertSameTree(expectedList.get(i), actualList.get(i), source);
+            }
+        } else if (expected instanceof Stmt || expected instanceof Expr) {
+            assertEquals(expected.getClass(), actual.getClass(), source);
+            for (Field field : expected.getClass().getFields()) {
+                try {
+                    assertSameTree(field.get(expected), field.get(actual), source);
+                } catch (IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        } else {
+            assertEquals(expected, actual, source);
+        }
+    }
+}
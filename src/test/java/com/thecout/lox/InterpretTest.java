@@ -76,6 +76,104 @@ public class InterpretTest {
             print printSum(2,5);
             
             """;
+    static final String earlyReturn = """
+            fun find(limit) {
+                for (var i = 0; i < 10; i = i + 1) {
+                    var j = 0;
+                    while (j < 10) {
+                        if (i * j > limit) {
+                            return i * 100 + j;
+                        }
+                        j = j + 1;
+                    }
+                }
+                print "not found";
+            }
+            print find(20);
+            print find(100);
+            print "after";
+            return;
+            print "unreachable";
+            """;
+    @Test
+    void earlyReturnTest() {
+        Scanner scanner = new Scanner(earlyReturn);
+        List<Token> actual = scanner.scan();
+        Parser parser = new Parser(actual);
+        Interpreter interpreter = new Interpreter();
+        List<Stmt> statements = parser.parse();
+        interpreter.interpret(statements);
+        assertEquals("307.0\nnot found\nnull\nafter", outContent.toString().trim(), "Return should leave both loops");
+        outContent.reset();
+    }
+    static final String tailCalls = """
+            fun count(n, acc) {
+                if (n < 1) return acc;
+                return count(n - 1, acc + 1);
+            }
+            fun even(n) {
+                if (n < 1) return true;
+                return odd(n - 1);
+            }
+            fun odd(n) {
+                if (n < 1) return false;
+                return even(n - 1);
+            }
+            fun capture(n) {
+                fun get() {
+                    return n;
+                }
+                if (n < 1) return get;
+                return capture(n - 1);
+            }
+            fun last(n) {
+                if (n < 1) return capture(3);
+                return last(n - 1);
+            }
+            print count(200000, 0);
+            print even(200001);
+            print last(5)();
+            """;
+    @Test
+    void tailCallTest() {
+        Scanner scanner = new Scanner(tailCalls);
+        List<Token> actual = scanner.scan();
+        Parser parser = new Parser(actual);
+        List<Stmt> statements = parser.parse();
+        for (boolean selfSpecializing : new boolean[]{false, true}) {
+            Interpreter interpreter = new Interpreter();
+            interpreter.setSelfSpecializing(selfSpecializing);
+            interpreter.interpret(statements);
+            assertEquals("200000.0\nfalse\n0.0", outContent.toString().trim(), "Tail calls must not grow the stack");
+            outContent.reset();
+        }
+    }
+    static final String tailCallArity = """
+            fun f(a, b) {
+                print b;
+                if (a) return f(false);
+                return 0;
+            }
+            fun g(a) {
+                if (a) return g(false, 1, 2);
+                return a;
+            }
+            f(true, 7);
+            print g(true);
+            """;
+    @Test
+    void tailCallArityTest() {
+        // A self tail call with too few arguments binds nil, like any other
+        // call, and one with too many drops the extras.
+        List<Stmt> statements = new Parser(new Scanner(tailCallArity).scan()).parse();
+        for (boolean selfSpecializing : new boolean[]{false, true}) {
+            Interpreter interpreter = new Interpreter();
+            interpreter.setSelfSpecializing(selfSpecializing);
+            interpreter.interpret(statements);
+            assertEquals("7.0\nnull\nfalse", outContent.toString().trim());
+            outContent.reset();
+        }
+    }
     @Test
     void loopTest2() {
         Scanner scanner = new Scanner(looptest2);
@@ -0,0 +1,134 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Jit.FunctionProfile;
+import com.thecout.lox.Jit.JvmCompiler;
+import com.thecout.lox.Jit.Tier;
+import com.thecout.lox.Jit.TieredCompilation;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Function;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.Resolver;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class JitTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    static final String fib = """
+            fun fib(n) {
+                if (n < 2) return n;
+                return fib(n - 1) + fib(n - 2);
+            }
+            print fib(20);
+            """;
+
+    private static List<Stmt> parse(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scan()).parse();
+        new Resolver().resolve(statements);
+        return statements;
+    }
+
+    private static String run(String source) {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setJit(new JvmCompiler());
+        interpreter.interpret(parse(source));
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    @Test
+    void compileTest() {
+        JvmCompiler compiler = new JvmCompiler();
+        assertNotNull(compiler.compile((Function) parse(fib).get(0)), "fib should be compiled");
+        assertNotNull(compiler.compile((Function) parse(InterpretTest.looptest2).get(0)), "for loops should be compiled");
+        assertNull(compiler.compile((Function) parse(ParserTest.program).get(0)), "print is left to the interpreter");
+        assertNull(compiler.compile((Function) parse("fun eq(a, b) { if (a == b) return 1; return 0; }").get(0)),
+                "equality is left to the interpreter");
+    }
+
+    @Test
+    void fibTest() {
+        assertEquals("6765.0", run(fib), "fib(20) should eval to 6765");
+    }
+
+    @Test
+    void redeclaredTest() {
+        // The old f calls whatever f is when it runs, so its self-call must
+        // not be bound to its own compiled body.
+        String source = """
+                fun f(n) { if (n < 1) return 0; return f(n - 1); }
+                var g = f;
+                fun f(n) { return 99; }
+                print g(3);
+                """;
+        assertEquals("99.0", run(source));
+        assertEquals("99.0", run(source.replace("fun f(n) { return 99; }", "fun h(n) { return 99; } f = h;")));
+    }
+
+    @Test
+    void programTest() {
+        assertEquals("5.0", run(InterpretTest.looptest), "Loop test 1 should eval to 5");
+        assertEquals("5.0", run(InterpretTest.looptest2), "Loop test 2 should eval to 5");
+        assertEquals("6.0", run(InterpretTest.conditionaltest1), "Conditional test 1 should eval to 6");
+        assertEquals("13.0", run(InterpretTest.arithmetic2), "Arithmetic test 2 should eval to 13");
+        assertEquals("7.0", run(InterpretTest.arithmetic1), "Arithmetic test 1 should eval to 7");
+    }
+
+    @Test
+    void tieringTest() {
+        TieredCompilation tiering = new TieredCompilation(new JvmCompiler(), 5);
+        List<FunctionProfile> transitions = new ArrayList<>();
+        tiering.addListener(transitions::add);
+        Interpreter interpreter = new Interpreter();
+        interpreter.setTiering(tiering);
+        interpreter.interpret(parse(fib + ParserTest.program + "printSum(1,2);\nprintSum(1,2);\nprintSum(1,2);\nprintSum(1,2);\nprintSum(1,2);\n"));
+        outContent.reset();
+
+        assertEquals(2, transitions.size(), "Both functions should have left the interpreted tier");
+        assertEquals("fib", transitions.get(0).name());
+        assertEquals(Tier.COMPILED, transitions.get(0).tier(), "fib should be promoted");
+        assertEquals(5, transitions.get(0).invocations(), "fib should be promoted on its fifth call");
+        assertEquals("printSum", transitions.get(1).name());
+        assertEquals(Tier.UNCOMPILABLE, transitions.get(1).tier(), "printSum prints and cannot be compiled");
+        assertEquals(1, tiering.promotions());
+        assertEquals(1, tiering.failedPromotions());
+    }
+
+    @Test
+    void backEdgeTest() {
+        TieredCompilation tiering = new TieredCompilation(new JvmCompiler(), 3);
+        Interpreter interpreter = new Interpreter();
+        interpreter.setTiering(tiering);
+        interpreter.interpret(parse(InterpretTest.looptest));
+        assertEquals("5.0", outContent.toString().trim(), "Loop test 1 should eval to 5");
+        outContent.reset();
+
+        FunctionProfile profile = tiering.profiles().iterator().next();
+        assertEquals(1, profile.invocations());
+        assertEquals(3, profile.backEdges(), "The loop runs three times");
+        assertEquals(Tier.INTERPRETED, profile.tier(), "Promotion only happens on the next call");
+    }
+}
@@ -0,0 +1,86 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.LimitExceeded;
+import com.thecout.lox.Traversal.InterpreterUtils.OutputSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LimitTest {
+    static final String runaway = """
+            var i = 0;
+            while (true) {
+                i = i + 1;
+            }
+            """;
+
+    @Test
+    void stepLimitTest() {
+        for (boolean fastPath : new boolean[]{false, true}) {
+            Interpreter interpreter = new Interpreter();
+            interpreter.setNumericFastPath(fastPath);
+            interpreter.setStepLimit(1000);
+            LimitExceeded error = assertThrows(LimitExceeded.class, () -> run(interpreter, runaway));
+            assertEquals("Step limit of 1000 exceeded.", error.getMessage());
+            // The scanner counts lines from 0.
+            assertEquals(1, error.getLine());
+            // The body runs once more before the back-edge that is refused.
+            assertEquals(1001.0, interpreter.globals.get(new Token(Symbol.intern("i"), 0)));
+        }
+    }
+
+    @Test
+    void recursionTest() {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setStepLimit(500);
+        LimitExceeded error = assertThrows(LimitExceeded.class, () -> run(interpreter, """
+                print "start";
+
+                fun down(n) {
+                    return down(n + 1) + 1;
+                }
+                down(0);
+                """));
+        assertEquals(2, error.getLine());
+    }
+
+    @Test
+    void timeLimitTest() {
+        Interpreter interpreter = new Interpreter();
+        long start = System.nanoTime();
+        interpreter.setTimeLimit(Duration.ofMillis(50));
+        LimitExceeded error = assertThrows(LimitExceeded.class, () -> run(interpreter, "\nwhile (true) {}"));
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+        assertEquals("Time limit exceeded.", error.getMessage());
+        assertEquals(1, error.getLine());
+    }
+
+    @Test
+    void serviceTest() throws Exception {
+        try (ExecutionService service = new ExecutionService(Executors.newFixedThreadPool(2),
+                interpreter -> interpreter.setStepLimit(1000))) {
+            Future<String> aborted = service.submit("print \"before\";\nwhile (true) {}");
+            Future<String> finished = service.submit("print \"done\";");
+            ExecutionException error = assertThrows(ExecutionException.class, aborted::get);
+            assertInstanceOf(LimitExceeded.class, error.getCause());
+            assertEquals(1, ((LimitExceeded) error.getCause()).getLine());
+            assertEquals("done\n", finished.get());
+        }
+    }
+
+    private static void run(Interpreter interpreter, String source) {
+        interpreter.setOutput(new OutputSink(new ByteArrayOutputStream()));
+        interpreter.interpret(new Parser(new Scanner(source).scan()).parse());
+    }
+}
@@ -0,0 +1,160 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Function;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.MemoCache;
+import com.thecout.lox.Traversal.PurityAnalysis;
+import com.thecout.lox.Traversal.Resolver;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MemoizationTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    static final String functions = """
+            var counter = 0;
+            fun square(x) { var y = x * x; { var z = y; return z; } }
+            fun sumSquares(n) {
+                var sum = 0;
+                for (var i = 0; i < n; i = i + 1) sum = sum + square(i);
+                return sum;
+            }
+            fun loud(x) { print x; return x; }
+            fun callsLoud(x) { return loud(x); }
+            fun bump() { counter = counter + 1; return counter; }
+            fun readsGlobal(x) { return x + counter; }
+            fun time() { return clock(); }
+            fun apply(f, x) { return f(x); }
+            fun outer(x) { fun inner() { return x; } return inner; }
+            fun even(n) { if (n == 0) return true; return odd(n - 1); }
+            fun odd(n) { if (n == 0) return false; return even(n - 1); }
+            fun twice(x) { return x; }
+            fun twice(x) { return 2 * x; }
+            fun usesTwice(x) { return twice(x); }
+            """;
+
+    @Test
+    void purityTest() {
+        List<Stmt> statements = parse(functions);
+        new Resolver().resolve(statements);
+        new PurityAnalysis().analyze(statements);
+        Map<String, Boolean> pure = new LinkedHashMap<>();
+        for (Stmt statement : statements) {
+            if (statement instanceof Function) {
+                pure.put(((Function) statement).name.lexeme, ((Function) statement).pure);
+            }
+        }
+        assertEquals("{square=true, sumSquares=true, loud=false, callsLoud=false, bump=false, "
+                        + "readsGlobal=false, time=false, apply=false, outer=false, even=true, odd=true, "
+                        + "twice=true, usesTwice=false}",
+                pure.toString());
+    }
+
+    static final String fib = """
+            fun fib(n) {
+                if (n < 2) return n;
+                return fib(n - 1) + fib(n - 2);
+            }
+            print fib(60);
+            print fib(60);
+            """;
+
+    @Test
+    void memoTest() {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setMemoization(100);
+        // Without the cache fib(60) would not finish.
+        interpreter.interpret(parse(fib));
+        assertEquals("1.54800875592E12\n1.54800875592E12", outContent.toString().trim());
+        outContent.reset();
+        MemoCache cache = interpreter.memoCache("fib");
+        assertEquals(61, cache.misses());
+        assertEquals(59, cache.hits());
+        assertEquals(61, cache.size());
+    }
+
+    static final String cycle = """
+            fun square(x) { return x * x; }
+            var sum = 0;
+            for (var j = 0; j < 3; j = j + 1) {
+                for (var i = 0; i < 3; i = i + 1) sum = sum + square(i);
+            }
+            print sum;
+            """;
+
+    @Test
+    void evictionTest() {
+        // Cycling through one argument more than fits evicts each entry
+        // just before it is needed again.
+        assertEquals("[0, 9, 2]", counters(cycle, 2));
+        assertEquals("[6, 3, 3]", counters(cycle, 3));
+        assertEquals("15.0\n15.0", outContent.toString().trim());
+        outContent.reset();
+    }
+
+    private static String counters(String source, int capacity) {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setMemoization(capacity);
+        interpreter.interpret(parse(source));
+        MemoCache cache = interpreter.memoCache("square");
+        return List.of(cache.hits(), cache.misses(), cache.size()).toString();
+    }
+
+    @Test
+    void parameterAssignmentTest() {
+        // The frame is built from a copy, so assigning the parameter leaves
+        // the cached key alone.
+        Interpreter interpreter = new Interpreter();
+        interpreter.setMemoization(100);
+        interpreter.interpret(parse("""
+                fun dec(n) { n = n - 1; return n; }
+                print dec(5);
+                print dec(5);
+                print dec(4);
+                """));
+        assertEquals("4.0\n4.0\n3.0", outContent.toString().trim());
+        outContent.reset();
+        assertEquals(1, interpreter.memoCache("dec").hits());
+    }
+
+    @Test
+    void impureTest() {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setMemoization(100);
+        interpreter.interpret(parse("""
+                fun loud(x) { print x; return x; }
+                loud(1);
+                loud(1);
+                """));
+        assertEquals("1.0\n1.0", outContent.toString().trim());
+        outContent.reset();
+        assertNull(interpreter.memoCache("loud"));
+    }
+
+    private static List<Stmt> parse(String source) {
+        return new Parser(new Scanner(source).scan()).parse();
+    }
+}
@@ -0,0 +1,66 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Traversal.Interpreter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NumericFastPathTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+    private static final int ITERATIONS = 200_000;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    // The bytes boxed per iteration of these loops are measured by
+    // NumericFastPathBenchmark with -prof gc.
+    static final String blockLoop = """
+            fun count(a, d) {
+                while (a < d) {
+                    a = a + 1;
+                }
+                return a;
+            }
+            print count(0, %d);
+            """.formatted(ITERATIONS);
+    static final String tightLoop = """
+            fun count(a, d) {
+                var step = -(1 - 2);
+                while (a < d) a = a + step * 2 / 2;
+                return a;
+            }
+            print count(0, %d);
+            """.formatted(ITERATIONS);
+
+    private static String run(String source, boolean fastPath) {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setNumericFastPath(fastPath);
+        interpreter.interpret(new Parser(new Scanner(source).scan()).parse());
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    @Test
+    void sameResultsTest() {
+        for (String program : List.of(InterpretTest.looptest, InterpretTest.looptest2, InterpretTest.conditionaltest1,
+                InterpretTest.arithmetic1, InterpretTest.arithmetic2, blockLoop, tightLoop)) {
+            assertEquals(run(program, false), run(program, true), "Fast path must not change results");
+        }
+    }
+}
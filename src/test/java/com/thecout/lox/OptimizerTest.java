@@ -0,0 +1,132 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Bytecode.VM;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.AstPrinter;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.Optimizer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class OptimizerTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    static final String program = """
+            fun scale(x, n) {
+                var total = 0;
+                for (var i = 0; i < n; i = i + 1) {
+                    total = total + (2 * 3 + x * 1);
+                }
+                if (1 < 2) {
+                    print "kept";
+                } else {
+                    print "dropped";
+                }
+                if (false and x) print "never";
+                return total - -(-(4 / 2));
+            }
+            print scale(1, 3);
+            print "con" + "cat";
+            print !(2 >= 3) and true;
+            """;
+
+    @Test
+    void foldTest() {
+        assertEquals("(Function x n (= total 0.0)\n"
+                        + "((= i 0.0)\n(while (< i n) ((= total (+ total (+ 6.0 x)))\n(= i (+ i 1.0)))))\n"
+                        + "((print kept))\n"
+                        + "(return (- total 2.0)) )\n"
+                        + "(print (scale 1.0 3.0))\n"
+                        + "(print concat)\n"
+                        + "(print true)",
+                print(new Optimizer().optimize(parse(program))));
+    }
+
+    @Test
+    void identityTest() {
+        // Without a numeric operand x * 1 could hide a failing cast.
+        assertEquals("(print (* x 1.0))", print(new Optimizer().optimize(parse("print x * 1;"))));
+        assertEquals("(print (- (* x 2.0) 3.0))", print(new Optimizer().optimize(parse("print x * 2 * 1 - 3;"))));
+        // 1 == 1 fails at runtime, so it is not folded.
+        assertEquals("(print (== 1.0 1.0))", print(new Optimizer().optimize(parse("print 1 == 1;"))));
+        // x + 0 would turn -0 into 0.
+        assertEquals("(print (+ (- x 1.0) 0.0))", print(new Optimizer().optimize(parse("print (x - 1) + 0;"))));
+    }
+
+    static final String loop = """
+            fun count(n) {
+                var sum = 0;
+                for (var i = 0; i < n * 2 - 1; i = i + 1) {
+                    var j = i;
+                    sum = sum + j;
+                }
+                return sum;
+            }
+            print count(3);
+            """;
+
+    @Test
+    void loopTest() {
+        assertEquals("(Function n (= sum 0.0)\n"
+                        + "((= i 0.0)\n(= $0 (- (* n 2.0) 1.0))\n"
+                        + "(while (< i $0) ((= j i)\n(= sum (+ sum j))\n(= i (+ i 1.0)))))\n"
+                        + "(return sum) )\n"
+                        + "(print (count 3.0))",
+                print(new Optimizer().optimize(parse(loop))));
+        new Interpreter().interpret(parse(loop));
+        new VM().interpret(parse(loop));
+        assertEquals("10.0\n10.0", outContent.toString().trim());
+        outContent.reset();
+
+        // A call in the loop may change n, and the body's i shadows the
+        // one the increment uses.
+        assertEquals("((= i 0.0)\n(while (< i (* n 2.0)) (((= i 5.0)\n(f ))\n(= i (+ i 1.0)))))",
+                print(new Optimizer().optimize(parse("for (var i = 0; i < n * 2; i = i + 1) { var i = 5; f(); }"))));
+    }
+
+    @Test
+    void unchangedTest() {
+        List<Stmt> statements = parse(InterpretTest.conditionaltest1);
+        assertSame(statements, new Optimizer().optimize(statements));
+    }
+
+    @Test
+    void sameOutputTest() {
+        new Interpreter().interpret(parse(program));
+        assertEquals("kept\n19.0\nconcat\ntrue", outContent.toString().trim());
+        outContent.reset();
+        new VM().interpret(parse(program));
+        assertEquals("kept\n19.0\nconcat\ntrue", outContent.toString().trim());
+        outContent.reset();
+    }
+
+    private static List<Stmt> parse(String source) {
+        return new Parser(new Scanner(source).scan()).parse();
+    }
+
+    private static String print(List<Stmt> statements) {
+        AstPrinter printer = new AstPrinter();
+        return statements.stream().map(printer::print).collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.OutputSink;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OutputSinkTest {
+    @Test
+    void formatTest() {
+        double[] values = {0, -0.0, 1, -1, 42, 9999999, 1e7, -1e7, 123456789, 0.5, -2.25, 1e-3, 1e-4,
+                1.54800875592E12, Double.NaN, Double.POSITIVE_INFINITY, Double.MAX_VALUE, Long.MIN_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes);
+        StringBuilder expected = new StringBuilder();
+        for (double value : values) {
+            sink.println(value);
+            expected.append(value).append(System.lineSeparator());
+        }
+        for (Object value : new Object[]{"plain", "ünïcode ✓", true, null}) {
+            sink.println(value);
+            expected.append(value).append(System.lineSeparator());
+        }
+        sink.flush();
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void thresholdTest() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes, 16, false);
+        sink.println("short");
+        assertEquals(0, bytes.size());
+        sink.println("long enough now");
+        assertEquals("short\nlong enough now\n", bytes.toString().replace(System.lineSeparator(), "\n"));
+        sink.println(1.0);
+        sink.flush();
+        assertEquals("short\nlong enough now\n1.0\n", bytes.toString().replace(System.lineSeparator(), "\n"));
+    }
+
+    @Test
+    void lineFlushingTest() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(bytes, OutputSink.DEFAULT_THRESHOLD, true);
+        sink.println("prompt");
+        assertEquals("prompt" + System.lineSeparator(), bytes.toString());
+    }
+
+    @Test
+    void errorOrderTest() {
+        // The output of a failing script is written out before the error
+        // is reported.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StringBuilder log = new StringBuilder();
+        Interpreter interpreter = new Interpreter();
+        interpreter.setOutput(new OutputSink(bytes));
+        interpreter.setErrorHandler(error -> log.append(bytes).append(error.getMessage()));
+        interpreter.interpret(new Parser(TokenBuffer.of("print \"before\"; print missing;")).parse());
+        assertEquals("before" + System.lineSeparator() + "Undefined variable 'missing'.", log.toString());
+    }
+}
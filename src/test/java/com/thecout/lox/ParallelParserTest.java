@@ -0,0 +1,74 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.ParallelParser;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ParallelParserTest {
+    static final String declarations = """
+            fun add(a, b) {
+                return a + b;
+            }
+            var x = add(1, 2);
+            if (x > 2) print x; else { print "small"; }
+            for (var i = 0; i < 3; i = i + 1) {
+                print (i + x) * 2;
+            }
+            print "done";
+            """;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @Test
+    void parallelTest() {
+        String source = declarations.repeat(200);
+        assertSameAsSequential(source);
+    }
+
+    @Test
+    void parallelErrorTest() {
+        String broken = declarations.replace("var x = add(1, 2);", "var x = add(1, 2;");
+        String source = declarations.repeat(50) + broken + declarations.repeat(50) + broken + declarations.repeat(50);
+        assertSameAsSequential(source);
+    }
+
+    @Test
+    void unbalancedTest() {
+        String source = declarations.repeat(50) + "fun open() {\n" + declarations.repeat(50);
+        assertSameAsSequential(source);
+    }
+
+    private void assertSameAsSequential(String source) {
+        TokenBuffer buffer = TokenBuffer.of(source);
+        String[] sequentialErrors = new String[1];
+        List<Stmt> expected = capture(() -> new Parser(buffer).parse(), sequentialErrors);
+        String[] parallelErrors = new String[1];
+        // Chunks of a few declarations each, so the pool gets many tasks.
+        List<Stmt> actual = capture(() -> new ParallelParser(pool, 64).parse(buffer), parallelErrors);
+        assertFalse(expected.isEmpty());
+        IncrementalParserTest.assertSameTree(expected, actual, source);
+        assertEquals(sequentialErrors[0], parallelErrors[0]);
+    }
+
+    private static List<Stmt> capture(Supplier<List<Stmt>> parse, String[] output) {
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outContent));
+        try {
+            return parse.get();
+        } finally {
+            System.setOut(originalOut);
+            output[0] = outContent.toString();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ProgramCacheTest {
+    @Test
+    void lruTest() {
+        ProgramCache cache = new ProgramCache(2);
+        List<Stmt> a = cache.get("print 1;");
+        assertSame(a, cache.get("print 1;"));
+        List<Stmt> b = cache.get("print 2;");
+        // Touching a makes b the eldest entry.
+        cache.get("print 1;");
+        cache.get("print 3;");
+        assertSame(a, cache.get("print 1;"));
+        assertNotSame(b, cache.get("print 2;"));
+        assertEquals(3, cache.hits());
+        assertEquals(4, cache.misses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void sharedTest() throws Exception {
+        // Every run of a source shares one resolved tree, including the
+        // memoized and self-specializing interpreters.
+        ProgramCache cache = new ProgramCache(16);
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sources.add(ExecutionServiceTest.script.formatted(i, 100 + i));
+        }
+        List<Future<String>> results = new ArrayList<>();
+        int[] mode = {0};
+        try (ExecutionService service = new ExecutionService(Executors.newFixedThreadPool(8), interpreter -> {
+            synchronized (mode) {
+                interpreter.setMemoization(mode[0] % 3 == 1 ? 16 : 0);
+                interpreter.setSelfSpecializing(mode[0]++ % 3 == 2);
+            }
+        }, cache)) {
+            for (int i = 0; i < 400; i++) {
+                results.add(service.submit(sources.get(i % sources.size())));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                int n = 100 + i % sources.size();
+                String name = "script" + i % sources.size();
+                assertEquals(String.join("\n", name, name, name, Double.toString(n * (n - 1) / 2.0)) + "\n",
+                        results.get(i).get());
+            }
+        }
+        assertEquals(400, cache.hits() + cache.misses());
+        assertEquals(4, cache.size());
+    }
+}
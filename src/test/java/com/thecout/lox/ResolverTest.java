@@ -0,0 +1,177 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Expr.Assign;
+import com.thecout.lox.Parser.Expr.Binary;
+import com.thecout.lox.Parser.Expr.Variable;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Block;
+import com.thecout.lox.Parser.Stmts.Expression;
+import com.thecout.lox.Parser.Stmts.Function;
+import com.thecout.lox.Parser.Stmts.If;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Parser.Stmts.Var;
+import com.thecout.lox.Parser.Stmts.While;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.Optimizer;
+import com.thecout.lox.Traversal.Resolver;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResolverTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    static final String closure = """
+            fun makeCounter(start) {
+                var count = start;
+                fun next(step) {
+                    count = count + step;
+                    return count;
+                }
+                return next;
+            }
+            var counter = makeCounter(10);
+            counter(1);
+            print counter(2);
+            """;
+    static final String shadowing = """
+            var a = 1;
+            {
+                var a = 2;
+                {
+                    a = a + 1;
+                    print a;
+                }
+            }
+            print a;
+            """;
+
+    static final String loopClosure = """
+            var first;
+            var sum = 0;
+            for (var i = 0; i < 3; i = i + 1) {
+                var k = i;
+                fun get() {
+                    return k;
+                }
+                if (i < 1) first = get;
+            }
+            for (var j = 0; j < 3; j = j + 1) {
+                var k = j * 2;
+                sum = sum + k;
+            }
+            print first();
+            print sum;
+            """;
+
+    static final String emptyBlocks = """
+            fun sign(x) {
+                var s = 0;
+                if (x < 0) {
+                    s = -1;
+                } else {
+                    {
+                        var one = 1;
+                        if (x > 0) {
+                            s = one;
+                        }
+                    }
+                }
+                return s;
+            }
+            print sign(-5);
+            print sign(0);
+            print sign(3);
+            """;
+
+    private static List<Stmt> parse(String source) {
+        return new Parser(new Scanner(source).scan()).parse();
+    }
+
+    @Test
+    void slotTest() {
+        List<Stmt> statements = parse(closure);
+        new Resolver().resolve(statements);
+        Function makeCounter = (Function) statements.get(0);
+        assertEquals(-1, makeCounter.slot, "Top level functions should stay global");
+        assertEquals(3, makeCounter.frameSize, "makeCounter needs slots for start, count and next");
+        assertEquals(1, ((Var) makeCounter.body.get(0)).slot, "count should live in slot 1");
+
+        Function next = (Function) makeCounter.body.get(1);
+        assertEquals(2, next.slot, "next should live in slot 2");
+        Assign assign = (Assign) ((Expression) next.body.get(0)).expression;
+        assertEquals(1, assign.depth, "count is one scope up from next");
+        assertEquals(1, assign.slot, "count should live in slot 1");
+        Variable step = (Variable) ((Binary) assign.value).right;
+        assertEquals(0, step.depth, "step is a parameter of next");
+        assertEquals(0, step.slot, "step should live in slot 0");
+    }
+
+    @Test
+    void closureTest() {
+        new Interpreter().interpret(parse(closure));
+        assertEquals("13.0", outContent.toString().trim(), "Closure test should eval to 13");
+        outContent.reset();
+    }
+
+    @Test
+    void shadowingTest() {
+        new Interpreter().interpret(parse(shadowing));
+        assertEquals("3.0\n1.0", outContent.toString().trim(), "Inner assignment must not touch the global");
+        outContent.reset();
+    }
+
+    @Test
+    void loopEnvironmentTest() {
+        // The Optimizer merges each for body into the block of the increment.
+        List<Stmt> statements = new Optimizer().optimize(parse(loopClosure));
+        new Resolver().resolve(statements);
+        While capturing = (While) ((Block) statements.get(2)).statements.get(1);
+        While plain = (While) ((Block) statements.get(3)).statements.get(1);
+        assertFalse(capturing.reuseEnvironment, "get captures the body of the first loop");
+        assertTrue(plain.reuseEnvironment, "Nothing captures the body of the second loop");
+
+        new Interpreter().interpret(statements);
+        assertEquals("0.0\n6.0", outContent.toString().trim(), "Every iteration must see its own k");
+        outContent.reset();
+    }
+
+    @Test
+    void blockScopeTest() {
+        List<Stmt> statements = parse(emptyBlocks);
+        new Resolver().resolve(statements);
+        If branch = (If) ((Function) statements.get(0)).body.get(1);
+        Block elseBlock = (Block) branch.elseBranch;
+        Block scoped = (Block) elseBlock.statements.get(0);
+        Block inner = (Block) ((If) scoped.statements.get(1)).thenBranch;
+        assertEquals(0, ((Block) branch.thenBranch).frameSize, "The then branch declares nothing");
+        assertEquals(0, elseBlock.frameSize, "The else branch declares nothing");
+        assertEquals(1, scoped.frameSize, "one needs a slot");
+        Assign assign = (Assign) ((Expression) inner.statements.get(0)).expression;
+        assertEquals(1, assign.depth, "s is in the function, one scope up from the block declaring one");
+        assertEquals(0, ((Variable) assign.value).depth, "one is in the nearest scope");
+
+        new Interpreter().interpret(statements);
+        assertEquals("-1.0\n0.0\n1.0", outContent.toString().trim());
+        outContent.reset();
+    }
+}
@@ -2,8 +2,18 @@ package com.thecout.lox;
 
 import org.junit.jupiter.api.Test;
 
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -54,4 +64,163 @@ public class ScannerTest {
         assertEquals(TokenType.STRING, actual.get(1).type, "Expected " + TokenType.STRING + ", got " + actual.get(1).type);
         assertEquals("Hello World", actual.get(1).literal, "Expected Hello World got " + actual.get(1).literal);
     }
+
+    @Test
+    void streamTest() throws IOException {
+        // Long enough that lexemes straddle the refill boundary of the window.
+        String source = (InterpretTest.program + "var identifierAtEndOfLine = \"a\nb\";\n").repeat(500);
+        List<Token> expected = new Scanner(source).scan();
+        List<Token> fromReader = drain(TokenStream.of(new StringReader(source)));
+        Path file = Files.createTempFile("lox", ".lox");
+        try {
+            Files.writeString(file, source);
+            List<Token> fromFile = drain(TokenStream.of(file));
+            assertEquals(expected.size(), fromReader.size());
+            assertEquals(expected.size(), fromFile.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).toString(), fromReader.get(i).toString());
+                assertEquals(expected.get(i).line, fromReader.get(i).line);
+                assertEquals(expected.get(i).toString(), fromFile.get(i).toString());
+            }
+        } finally {
+            Files.delete(file);
+        }
+        assertEquals(TokenType.EOF, expected.get(expected.size() - 1).type);
+        assertEquals("a\nb", expected.get(expected.size() - 3).literal);
+    }
+
+    @Test
+    void surrogateAtWindowEndTest() throws IOException {
+        // The string fills the window up to its last char, where the decoder
+        // cannot store the two chars of the emoji.
+        String source = "\"" + "a".repeat(8190) + "\uD83D\uDE00\";";
+        Path file = Files.createTempFile("lox", ".lox");
+        try {
+            Files.writeString(file, source);
+            List<Token> tokens = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> drain(TokenStream.of(file)));
+            assertEquals(3, tokens.size());
+            assertEquals(source.substring(1, source.length() - 2), tokens.get(0).literal);
+            assertEquals(TokenType.SEMICOLON, tokens.get(1).type);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void backendTest() {
+        String source = InterpretTest.program + ParserTest.program + ResolverTest.closure + """
+                var an = 1; var fortune = an >= 2 != !true; var orchid = nil;
+                if (an <= 3 or fortune == false and orchid) { whilst = an * 2 - 1 / 4.5; }
+                print "multi
+                line" + funny; return _x1;
+                """;
+        List<Token> tables = new Scanner(source, TokenStream.Backend.TABLES).scan();
+        List<Token> handWritten = new Scanner(source, TokenStream.Backend.SWITCH).scan();
+        assertEquals(handWritten.size(), tables.size());
+        for (int i = 0; i < tables.size(); i++) {
+            assertEquals(handWritten.get(i).toString(), tables.get(i).toString());
+            assertEquals(handWritten.get(i).line, tables.get(i).line);
+        }
+        // Keywords share the lexeme of their TokenType instead of allocating.
+        assertSame(TokenType.IF.lexeme, tables.stream().filter(t -> t.type == TokenType.IF).findFirst().get().lexeme);
+        assertEquals(TokenType.IDENTIFIER, tables.stream().filter(t -> t.lexeme.equals("whilst")).findFirst().get().type);
+    }
+
+    @Test
+    void malformedBackendTest() {
+        // Both backends skip what starts no token and agree on where the
+        // skipping stops.
+        for (String source : new String[]{
+                "print \"never closed;\nvar x = 1;",
+                "var a = \"ok\"; var b = \"open\nline two\n",
+                "var s = \"closed\" + \"",
+                "var @x = 1 # 2; $ ~ \u00e9\u00fc \t\r\n?",
+                "print 1.; print 1.5.; print 1.2.3; print 12.foo;\n4.",
+                "\"",
+                "var x = 1;\n   \n  @ \n",
+                ".5 + 5.",
+        }) {
+            List<Token> tables = new Scanner(source, TokenStream.Backend.TABLES).scan();
+            List<Token> handWritten = new Scanner(source, TokenStream.Backend.SWITCH).scan();
+            assertEquals(handWritten.size(), tables.size(), source);
+            for (int i = 0; i < tables.size(); i++) {
+                assertEquals(handWritten.get(i).toString(), tables.get(i).toString(), source);
+                assertEquals(handWritten.get(i).line, tables.get(i).line, source);
+            }
+        }
+        List<Token> tokens = new Scanner("print 1.;", TokenStream.Backend.SWITCH).scan();
+        assertEquals(List.of(TokenType.PRINT, TokenType.NUMBER, TokenType.DOT, TokenType.SEMICOLON, TokenType.EOF),
+                tokens.stream().map(token -> token.type).collect(Collectors.toList()));
+        assertEquals(1.0, tokens.get(1).literal);
+        // The quote of an open string is dropped and what follows is scanned.
+        tokens = new Scanner("print \"x;", TokenStream.Backend.SWITCH).scan();
+        assertEquals(List.of(TokenType.PRINT, TokenType.IDENTIFIER, TokenType.SEMICOLON, TokenType.EOF),
+                tokens.stream().map(token -> token.type).collect(Collectors.toList()));
+    }
+
+    @Test
+    void symbolTest() {
+        List<Token> tables = new Scanner("var total = total + 1; total;", TokenStream.Backend.TABLES).scan();
+        List<Token> handWritten = new Scanner("total", TokenStream.Backend.SWITCH).scan();
+        Symbol total = Symbol.intern("total");
+        assertSame(total, tables.get(1).symbol);
+        assertSame(total, tables.get(3).symbol);
+        assertSame(total, tables.get(7).symbol);
+        assertSame(total, handWritten.get(0).symbol);
+        assertSame(total.name, tables.get(3).lexeme);
+        assertNotSame(total, Symbol.intern("totals"));
+        assertNull(tables.get(0).symbol);
+    }
+
+    @Test
+    void symbolTableTest() {
+        // Names of finished programs can be collected, so the table stays
+        // small however many distinct names pass through it.
+        Symbol kept = Symbol.intern("keptAcrossPrograms");
+        StringBuilder source = new StringBuilder();
+        for (int program = 0; program < 50; program++) {
+            source.setLength(0);
+            for (int i = 0; i < 1000; i++) {
+                source.append("var p").append(program).append('_').append(i).append(" = ").append(i).append(";\n");
+            }
+            assertEquals("", ExecutionService.run(source.toString()));
+            System.gc();
+        }
+        assertTrue(Symbol.capacity() <= 1 << 14, "Table grew to " + Symbol.capacity());
+        assertSame(kept, Symbol.intern("keptAcrossPrograms"));
+    }
+
+    @Test
+    void bufferTest() {
+        String source = InterpretTest.program + ResolverTest.closure;
+        List<Token> expected = new Scanner(source).scan();
+        TokenBuffer buffer = TokenBuffer.of(source);
+        assertEquals(expected.size(), buffer.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).type, buffer.type(i));
+            assertEquals(expected.get(i).line, buffer.line(i));
+            assertEquals(expected.get(i).lexeme, buffer.lexeme(i));
+            assertEquals(expected.get(i).toString(), buffer.token(i).toString());
+            assertSame(expected.get(i).symbol, buffer.token(i).symbol);
+        }
+    }
+
+    @Test
+    void parseStreamTest() {
+        List<Stmt> expected = new Parser(new Scanner(ParserTest.program).scan()).parse();
+        List<Stmt> streamed = new Parser(TokenStream.of(ParserTest.program)).parse();
+        List<Stmt> buffered = new Parser(TokenBuffer.of(ParserTest.program)).parse();
+        assertEquals(expected.size(), streamed.size());
+        assertEquals(expected.size(), buffered.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).print(), streamed.get(i).print());
+            assertEquals(expected.get(i).print(), buffered.get(i).print());
+        }
+    }
+
+    private static List<Token> drain(TokenStream stream) {
+        List<Token> tokens = new ArrayList<>();
+        stream.forEachRemaining(tokens::add);
+        return tokens;
+    }
 }
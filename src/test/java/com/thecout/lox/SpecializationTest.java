@@ -0,0 +1,97 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Expr.Expr;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Function;
+import com.thecout.lox.Parser.Stmts.Return;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.Nodes.CallNode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpecializationTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    static final String callSites = """
+            fun one(x) {
+                return x + 1;
+            }
+            fun two(x) {
+                return x + 2;
+            }
+            fun apply(f, x) {
+                return f(x);
+            }
+            print apply(one, 1);
+            print apply(one, 2);
+            """;
+
+    private static String run(Interpreter interpreter, List<Stmt> statements) {
+        interpreter.interpret(statements);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    private static Interpreter specializing() {
+        Interpreter interpreter = new Interpreter();
+        interpreter.setSelfSpecializing(true);
+        return interpreter;
+    }
+
+    private static Expr returnValue(Stmt function) {
+        return ((Return) ((Function) function).body.get(0)).value;
+    }
+
+    @Test
+    void programTest() {
+        for (String program : List.of(InterpretTest.looptest, InterpretTest.looptest2, InterpretTest.conditionaltest1,
+                InterpretTest.arithmetic1, InterpretTest.arithmetic2, ResolverTest.closure, ResolverTest.shadowing)) {
+            List<Stmt> statements = new Parser(new Scanner(program).scan()).parse();
+            assertEquals(run(new Interpreter(), statements), run(specializing(), statements),
+                    "Specializing nodes must not change results");
+        }
+    }
+
+    @Test
+    void specializeTest() {
+        List<Stmt> statements = new Parser(new Scanner(callSites).scan()).parse();
+        Interpreter interpreter = specializing();
+        assertEquals("2.0\n3.0", run(interpreter, statements));
+
+        assertEquals("DoubleAdd", interpreter.specializedNode(returnValue(statements.get(0))).child().getClass().getSimpleName(),
+                "x + 1 has only seen numbers");
+        assertTrue(interpreter.specializedNode(returnValue(statements.get(2))).child() instanceof CallNode.Monomorphic,
+                "f(x) has only seen one callee");
+    }
+
+    @Test
+    void deoptimizeTest() {
+        List<Stmt> statements = new Parser(new Scanner(callSites + "print apply(two, 1);\n").scan()).parse();
+        Interpreter interpreter = specializing();
+        assertEquals("2.0\n3.0\n3.0", run(interpreter, statements));
+
+        assertEquals("Generic", interpreter.specializedNode(returnValue(statements.get(2))).child().getClass().getSimpleName(),
+                "f(x) should go generic after seeing a second callee");
+    }
+}
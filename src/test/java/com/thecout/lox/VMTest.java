@@ -0,0 +1,105 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Bytecode.VM;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VMTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    private static String run(String source) {
+        List<Stmt> statements = new Parser(new Scanner(source).scan()).parse();
+        new VM().interpret(statements);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    @Test
+    void loopTest2() {
+        assertEquals("5.0", run(InterpretTest.looptest2), "Loop test 2 should eval to 5");
+    }
+
+    @Test
+    void loopTest() {
+        assertEquals("5.0", run(InterpretTest.looptest), "Loop test 1 should eval to 5");
+    }
+
+    @Test
+    void conditionalTest() {
+        assertEquals("6.0", run(InterpretTest.conditionaltest1), "Conditional test 1 should eval to 6");
+    }
+
+    @Test
+    void arithmeticTest2() {
+        assertEquals("13.0", run(InterpretTest.arithmetic2), "Arithmetic test 2 should eval to 13");
+    }
+
+    @Test
+    void arithmeticTest() {
+        assertEquals("7.0", run(InterpretTest.arithmetic1), "Arithmetic test 1 should eval to 7");
+    }
+
+    @Test
+    void noFailTest() {
+        run(InterpretTest.program);
+    }
+
+    @Test
+    void closureTest() {
+        assertEquals("13.0", run(ResolverTest.closure), "Closure test should eval to 13");
+    }
+
+    @Test
+    void shadowingTest() {
+        assertEquals("3.0\n1.0", run(ResolverTest.shadowing), "Inner assignment must not touch the global");
+    }
+
+    @Test
+    void upvalueLimitTest() {
+        // The inner function closes over 200 variables of outer and 100 of
+        // middle, more than one byte can index.
+        StringBuilder source = new StringBuilder("fun outer() {\n");
+        StringBuilder sum = new StringBuilder("0");
+        for (int i = 0; i < 200; i++) {
+            source.append("var a").append(i).append(" = 1;\n");
+            sum.append(" + a").append(i);
+        }
+        source.append("fun middle() {\n");
+        for (int i = 0; i < 100; i++) {
+            source.append("var b").append(i).append(" = 1;\n");
+            sum.append(" + b").append(i);
+        }
+        source.append("fun inner() { print ").append(sum).append("; }\n}\n}\nprint \"compiled\";\n");
+        PrintStream originalErr = System.err;
+        ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errContent));
+        try {
+            assertEquals("", run(source.toString()));
+        } finally {
+            System.setErr(originalErr);
+        }
+        assertTrue(errContent.toString().contains("CompileError: Too many closure variables in function."));
+    }
+}